@@ -5,8 +5,12 @@
  ******************************************************************************/
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class Rational implements Comparable<Rational> {
 
@@ -14,9 +18,30 @@ public final class Rational implements Comparable<Rational> {
 	static Rational ZERO = new Rational(0, 1);
 	static Rational ONE  = new Rational(1, 1);
 
+	// Shared instances for every reduced n/d with 0 <= n, d <= POOL_LIMIT
+	// the rows (one for every denominator) are created on first use
+	static final int POOL_LIMIT = 1024;
+	private static final AtomicReferenceArray<AtomicReferenceArray<Rational>> pool = 
+			new AtomicReferenceArray<AtomicReferenceArray<Rational>>(POOL_LIMIT + 1);
+
+	// Counters of the BigInteger slow path
+	private static final LongAdder overflows = new LongAdder();
+	private static final LongAdder slowOperations = new LongAdder();
+
 	// Variables
 	private long numerator;
 	private long denominator;
+	
+	// the value is held in BigIntegers only when it does not fit in longs,
+	// otherwise both of them are null and the long fields are used
+	private BigInteger bigNumerator;
+	private BigInteger bigDenominator;
+	
+	// shared instances from the pool cannot be changed
+	private boolean shared;
+	
+	// the prime exponents of a shared instance, found on first use (see Monzo.valueOf())
+	volatile Monzo monzo;
 
 	// Constructors
 	public Rational() {
@@ -35,8 +60,10 @@ public final class Rational implements Comparable<Rational> {
 			throw new NullPointerException("Must supply a non-null Object value");
 		}
 		
-		numerator   = rational.numerator;
-		denominator = rational.denominator;
+		numerator      = rational.numerator;
+		denominator    = rational.denominator;
+		bigNumerator   = rational.bigNumerator;
+		bigDenominator = rational.bigDenominator;
 	}
 	
 	// create Rational number
@@ -52,6 +79,61 @@ public final class Rational implements Comparable<Rational> {
 		this.reduce();
 	}
 	
+	// create Rational number of arbitrary size
+	public Rational(BigInteger numerator, BigInteger denominator) {
+		
+		if (numerator == null || denominator == null) {
+			throw new NullPointerException("Must supply non-null Object values");
+		}
+		this.setBig(numerator, denominator);
+	}
+	
+	// Returns a shared instance for small values, a new Rational otherwise
+	// the shared instances are read only, their setters throw
+	public static Rational valueOf(long numerator, long denominator) {
+		
+		if (denominator == 0) {
+			throw new IllegalArgumentException("Denominator cannot be 0");
+		}
+		if (numerator < 0 || denominator < 0 || numerator > POOL_LIMIT * denominator) {
+			return new Rational(numerator, denominator);
+		}
+		
+		long divisor = (numerator == 0) ? denominator : GCD(numerator, denominator);
+		long n = numerator   / divisor;
+		long d = denominator / divisor;
+		if (n > POOL_LIMIT || d > POOL_LIMIT) {
+			return new Rational(n, d);
+		}
+		
+		AtomicReferenceArray<Rational> row = pool.get((int) d);
+		if (row == null) {
+			pool.compareAndSet((int) d, null, new AtomicReferenceArray<Rational>(POOL_LIMIT + 1));
+			row = pool.get((int) d);
+		}
+		
+		Rational r = row.get((int) n);
+		if (r == null) {
+			Rational created = new Rational(n, d);
+			created.shared = true;
+			r = row.compareAndSet((int) n, null, created) ? created : row.get((int) n);
+		}
+		return r;
+	}
+	
+	// Returns true if this is a read only instance from the pool
+	boolean isShared() {
+		return shared;
+	}
+	
+	// Throws if this is a shared instance
+	private void checkNotShared() {
+		
+		if (shared) {
+			throw new UnsupportedOperationException("Shared Rational instances cannot be changed");
+		}
+	}
+	
 	// Reduces fraction to simple form
 	private void reduce() {
 		
@@ -69,40 +151,141 @@ public final class Rational implements Comparable<Rational> {
 		numerator /= divisor;
 	}
 
+	// Reduces fraction of arbitrary size to simple form, 
+	// and moves it back to longs when it fits
+	private void setBig(BigInteger n, BigInteger d) {
+		
+		if (d.signum() == 0) {
+			throw new IllegalArgumentException("Denominator cannot be 0");
+		}
+		
+		if (d.signum() < 0) {
+			d = d.negate();
+			n = n.negate();
+		}
+		
+		BigInteger divisor = n.gcd(d);
+		if (divisor.signum() != 0 && !divisor.equals(BigInteger.ONE)) {
+			n = n.divide(divisor);
+			d = d.divide(divisor);
+		}
+		
+		if (n.bitLength() < 64 && d.bitLength() < 64) {
+			numerator      = n.longValue();
+			denominator    = d.longValue();
+			bigNumerator   = null;
+			bigDenominator = null;
+		}
+		else {
+			numerator      = 0;
+			denominator    = 1;
+			bigNumerator   = n;
+			bigDenominator = d;
+		}
+	}
+
 	// Setters
 	public void setNumerator(long n) {
+		
+		this.checkNotShared();
+		if (isBig()) {
+			this.setBig(BigInteger.valueOf(n), bigDenominator);
+			return;
+		}
 		numerator = n;
 		this.reduce();
 	}
 
 	public void setDenominator(long d) {
+		
+		this.checkNotShared();
+		if (isBig()) {
+			this.setBig(bigNumerator, BigInteger.valueOf(d));
+			return;
+		}
 		denominator = d;
 		this.reduce();
 	}
 
 	public void setRational(long n, long d) {
+		this.checkNotShared();
 		numerator = n;
 		denominator = d;
+		bigNumerator   = null;
+		bigDenominator = null;
 		this.reduce();
 	}
  
 	// Getters
+	
+	// throws ArithmeticException if the numerator does not fit in a long
 	public long getNumerator() {
+		
+		if (isBig()) {
+			throw new ArithmeticException("Numerator does not fit in a long, use getBigNumerator()");
+		}
 		return numerator;
 	}
 
+	// throws ArithmeticException if the denominator does not fit in a long
 	public long getDenominator() {
+		
+		if (isBig()) {
+			throw new ArithmeticException("Denominator does not fit in a long, use getBigDenominator()");
+		}
 		return denominator;
 	}
+	
+	public BigInteger getBigNumerator() {
+		return isBig() ? bigNumerator : BigInteger.valueOf(numerator);
+	}
+	
+	public BigInteger getBigDenominator() {
+		return isBig() ? bigDenominator : BigInteger.valueOf(denominator);
+	}
+	
+	// Returns true if this is held in BigIntegers
+	public boolean isBig() {
+		return bigNumerator != null;
+	}
+	
+	// Returns how many times long arithmetic overflowed and was moved to BigIntegers
+	public static long getOverflowCount() {
+		return overflows.sum();
+	}
+	
+	// Returns how many operations were computed on the BigInteger slow path
+	public static long getSlowPathCount() {
+		return slowOperations.sum();
+	}
+	
+	public static void resetCounters() {
+		overflows.reset();
+		slowOperations.reset();
+	}
 
 	// Returns Double representation of this 
 	public double toDouble() {
+		
+		if (isBig()) {
+			return toDouble(bigNumerator, bigDenominator);
+		}
 		return (double) numerator / denominator;
 	}
+	
+	// Returns Double representation of n / d without overflowing to infinity
+	static double toDouble(BigInteger n, BigInteger d) {
+		return new BigDecimal(n).divide(new BigDecimal(d), MathContext.DECIMAL64).doubleValue();
+	}
 
 	@Override
 	// Returns String representation of this
 	public String toString() {
+		
+		if (isBig()) {
+			if (bigDenominator.equals(BigInteger.ONE)) return bigNumerator.toString();
+			return bigNumerator + "/" + bigDenominator;
+		}
 		if (denominator == 1) return numerator + "";
 		return numerator + "/" + denominator;
 	}
@@ -110,12 +293,25 @@ public final class Rational implements Comparable<Rational> {
 	// Returns -1, 0, +1 
 	public int compareTo(Rational that) {
 		
-		long a = this.numerator   * that.denominator;
-		long b = this.denominator * that.numerator;
+		if (this.isBig() || that.isBig()) {
+			slowOperations.increment();
+			BigInteger a = this.getBigNumerator().multiply(that.getBigDenominator());
+			BigInteger b = this.getBigDenominator().multiply(that.getBigNumerator());
+			return a.compareTo(b);
+		}
+		return compareProducts(this.numerator, that.denominator, this.denominator, that.numerator);
+	}
+	
+	// Returns -1, 0, +1 comparing a * b with c * d, 
+	// using the exact 128 bit products so it never overflows
+	static int compareProducts(long a, long b, long c, long d) {
+		
+		long high1 = Math.multiplyHigh(a, b);
+		long high2 = Math.multiplyHigh(c, d);
 		
-		if (a < b) return -1;
-		if (a > b) return +1;
-		return 0;
+		if (high1 < high2) return -1;
+		if (high1 > high2) return +1;
+		return Integer.signum(Long.compareUnsigned(a * b, c * d));
 	}
 
 	// Returns the Sign 
@@ -126,6 +322,10 @@ public final class Rational implements Comparable<Rational> {
 	// Returns absolute value of this
 	public Rational abs() {
 		
+		if (isBig()) {
+			if (bigNumerator.signum() >= 0) return this;
+			return new Rational(bigNumerator.negate(), bigDenominator);
+		}
 		if (numerator >= 0) return this;
 		return new Rational(-numerator, denominator);
 	}
@@ -147,7 +347,14 @@ public final class Rational implements Comparable<Rational> {
 	@Override
 	// HashCode Consistent with equals() & compareTo()
 	public int hashCode() {
-		return this.toString().hashCode();
+		
+		if (isBig()) {
+			return 31 * bigNumerator.hashCode() + bigDenominator.hashCode();
+		}
+		// a negative value may keep its sign on the denominator
+		long n = (denominator < 0) ? -numerator : numerator;
+		long d = (denominator < 0) ? -denominator : denominator;
+		return 31 * Long.hashCode(n) + Long.hashCode(d);
 	}
 
 	// Returns Greatest Common Divisor
@@ -161,25 +368,58 @@ public final class Rational implements Comparable<Rational> {
 	
 	// Return extended gcd defined for Rationals
 	static Rational GCD(Rational x, Rational y) {
-		
-		long m = x.numerator   * y.denominator;
-		long n = y.numerator   * x.denominator;
-		long d = x.denominator * y.denominator;
-		return new Rational(GCD(m, n), d);
+		return new Accumulator(x).gcdWith(y).toRational();
 	}
 
 	// Returns Least Common Multiplier
+	// throws ArithmeticException if the result does not fit in a long
 	static long LCM(long m, long n) {
 	
 		if (n < 0) n = -n;
 		if (m < 0) m = -m;
 		// Parentheses need to avoid overflow
-		return m * (n / GCD(m, n)); 
+		return Math.multiplyExact(m, n / GCD(m, n)); 
+	}
+	
+	// Returns Least Common Multiplier of arbitrary size
+	static BigInteger LCM(BigInteger m, BigInteger n) {
+		
+		m = m.abs();
+		n = n.abs();
+		return m.multiply(n.divide(m.gcd(n)));
 	}
 	
 	// Return extended lcm defined for Rationals
 	static Rational LCM(Rational x, Rational y) {
-		return x.multiply(y.divide(GCD(x, y)));
+		return new Accumulator(x).lcmWith(y).toRational();
+	}
+
+	// Returns extended gcd of all the given Rationals
+	static Rational gcdAll(Rational... rationals) {
+		
+		if (rationals == null || rationals.length == 0) {
+			throw new IllegalArgumentException("Must supply at least one Rational");
+		}
+		
+		Accumulator gcd = new Accumulator(rationals[0]);
+		for (int i = 1; i < rationals.length; i++) {
+			gcd.gcdWith(rationals[i]);
+		}
+		return gcd.toRational();
+	}
+	
+	// Returns extended lcm of all the given Rationals
+	static Rational lcmAll(Rational... rationals) {
+		
+		if (rationals == null || rationals.length == 0) {
+			throw new IllegalArgumentException("Must supply at least one Rational");
+		}
+		
+		Accumulator lcm = new Accumulator(rationals[0]);
+		for (int i = 1; i < rationals.length; i++) {
+			lcm.lcmWith(rationals[i]);
+		}
+		return lcm.toRational();
 	}
 
 	// Returns addition of this + long value
@@ -193,24 +433,55 @@ public final class Rational implements Comparable<Rational> {
 		// special cases
 		if (this.compareTo(ZERO) == 0) return that;
 		if (that.compareTo(ZERO) == 0) return this;
+		
+		if (this.isBig() || that.isBig()) {
+			return bigAdd(this, that);
+		}
 
-		// find gcd of numerators and denominators
-		long n = GCD(this.numerator,   that.numerator);
-		long d = GCD(this.denominator, that.denominator);
-
-		// add cross-product terms for numerator
-		Rational sum = new Rational(
-				(this.numerator / n) * (that.denominator / d) + (that.numerator / n) * (this.denominator / d),
-				 this.denominator    * (that.denominator / d));
+		try {
+			// find gcd of numerators and denominators
+			long n = GCD(this.numerator,   that.numerator);
+			long d = GCD(this.denominator, that.denominator);
+	
+			// add cross-product terms for numerator
+			Rational sum = new Rational(
+					Math.addExact(
+							Math.multiplyExact(this.numerator / n, that.denominator / d), 
+							Math.multiplyExact(that.numerator / n, this.denominator / d)),
+					Math.multiplyExact(this.denominator, that.denominator / d));
+			
+			// multiply back in
+			sum.numerator = Math.multiplyExact(sum.numerator, n);
+			return sum;
+		}
+		catch (ArithmeticException e) {
+			overflows.increment();
+			return bigAdd(this, that);
+		}
+	}
+	
+	// Returns x + y computed with BigIntegers
+	private static Rational bigAdd(Rational x, Rational y) {
 		
-		// multiply back in
-		sum.numerator *= n;
-		return sum;
+		slowOperations.increment();
+		BigInteger n = x.getBigNumerator().multiply(y.getBigDenominator())
+				.add(y.getBigNumerator().multiply(x.getBigDenominator()));
+		return new Rational(n, x.getBigDenominator().multiply(y.getBigDenominator()));
 	}
 	
 	// Returns a new Rational (r.num + s.num) / (r.den + s.den)
     public static Rational mediant(Rational r, Rational s) {
-        return new Rational(r.numerator + s.numerator, r.denominator + s.denominator);
+    	
+    	if (!r.isBig() && !s.isBig()) {
+    		try {
+    			return new Rational(Math.addExact(r.numerator, s.numerator), Math.addExact(r.denominator, s.denominator));
+    		}
+    		catch (ArithmeticException e) {
+    			overflows.increment();
+    		}
+    	}
+    	slowOperations.increment();
+        return new Rational(r.getBigNumerator().add(s.getBigNumerator()), r.getBigDenominator().add(s.getBigDenominator()));
     }
 	
 	// Returns new Rational half way between this and that
@@ -225,7 +496,16 @@ public final class Rational implements Comparable<Rational> {
 	
 	// Returns this - that
 	public Rational subtract(Rational that) {
-		return this.add(new Rational(-that.numerator, this.denominator));
+		return this.add(that.negate());
+	}
+	
+	// Returns -this
+	public Rational negate() {
+		
+		if (isBig() || numerator == Long.MIN_VALUE) {
+			return new Rational(getBigNumerator().negate(), getBigDenominator());
+		}
+		return new Rational(-numerator, denominator);
 	}
 	
 	// Returns multiplication of this * some value
@@ -236,12 +516,33 @@ public final class Rational implements Comparable<Rational> {
 	
 	// Returns multiplication of this * that
 	public Rational multiply(Rational that) {
+		
+		if (this.isBig() || that.isBig()) {
+			return bigMultiply(this, that);
+		}
 
-		// reduce p1/q2 & p2/q1, then multiply, where this = p1/q1 & that = p2/q2
-		Rational right = new Rational(this.numerator, that.denominator);
-		Rational left  = new Rational(that.numerator, this.denominator);
-		// return right * left
-		return new Rational(right.numerator * left.numerator, right.denominator * left.denominator);
+		try {
+			// reduce p1/q2 & p2/q1, then multiply, where this = p1/q1 & that = p2/q2
+			Rational right = new Rational(this.numerator, that.denominator);
+			Rational left  = new Rational(that.numerator, this.denominator);
+			// return right * left
+			return new Rational(
+					Math.multiplyExact(right.numerator,   left.numerator), 
+					Math.multiplyExact(right.denominator, left.denominator));
+		}
+		catch (ArithmeticException e) {
+			overflows.increment();
+			return bigMultiply(this, that);
+		}
+	}
+	
+	// Returns x * y computed with BigIntegers
+	private static Rational bigMultiply(Rational x, Rational y) {
+		
+		slowOperations.increment();
+		return new Rational(
+				x.getBigNumerator().multiply(y.getBigNumerator()), 
+				x.getBigDenominator().multiply(y.getBigDenominator()));
 	}
 
 	// Returns this / long value
@@ -256,24 +557,64 @@ public final class Rational implements Comparable<Rational> {
 
 	// Returns 1 / this
 	public Rational invert() {
+		
+		if (isBig()) {
+			return new Rational(bigDenominator, bigNumerator);
+		}
 		return new Rational(denominator, numerator);
 	}
 	
 	// Returns integer nth power of Rational
 	public Rational pow(int n) {
 		
-		Rational R = this;
-		R.numerator   = (long)Math.pow(R.numerator,   Math.abs(n));
-		R.denominator = (long)Math.pow(R.denominator, Math.abs(n));
-		R = new Rational(R);
-		
 		if (n == 0) return ONE;
+		int e = Math.abs(n);
+		
+		Rational R = null;
+		if (!isBig()) {
+			try {
+				R = new Rational(pow(numerator, e), pow(denominator, e));
+			}
+			catch (ArithmeticException e1) {
+				overflows.increment();
+			}
+		}
+		if (R == null) {
+			slowOperations.increment();
+			R = new Rational(getBigNumerator().pow(e), getBigDenominator().pow(e));
+		}
 		return (n > 0) ? R : R.invert();
 	}
+	
+	// Returns base^e using exponentiation by squaring
+	// throws ArithmeticException if the result does not fit in a long
+	private static long pow(long base, int e) {
+		
+		long result = 1;
+		while (e > 0) {
+			if ((e & 1) == 1) result = Math.multiplyExact(result, base);
+			e >>= 1;
+			if (e > 0) base = Math.multiplyExact(base, base);
+		}
+		return result;
+	}
 
 	// Returns list of Coefficients of this Rational Continued Fraction Expansion
+	// computed on doubles (see class ContinuedFraction)
 	static ArrayList<Long> CFE(Double v, int terms) {
 		
+		long[] coefficients = ContinuedFraction.coefficients(v, terms);
+		ArrayList<Long> list = new ArrayList<Long>(coefficients.length);
+		for (long c : coefficients) {
+			list.add(c);
+		}
+		return list;
+	}
+	
+	// Returns list of Coefficients of the Continued Fraction Expansion
+	// of value in high precision, this is much slower than the double version
+	static ArrayList<Long> CFE(BigDecimal value, int terms) {
+		
 		if (terms <= 0) {
 			throw new IllegalArgumentException("Invalid terms input");
 		}
@@ -281,7 +622,6 @@ public final class Rational implements Comparable<Rational> {
 		long decimal;
 		BigDecimal fractional;
 		BigDecimal error = new BigDecimal("0.00000001"); 
-		BigDecimal value = new BigDecimal(v.toString());
 		ArrayList<Long> coefficients = new ArrayList<Long>();
 
 		while (terms-- != 0) {
@@ -302,62 +642,336 @@ public final class Rational implements Comparable<Rational> {
 	// Returns the nth nearest rational approximation of v using CFE partial fractions
 	static Rational approxWithCFE(Double v, int nth) {
 		
-		// calculate cfe coefficients
-		ArrayList<Long> coefficients = CFE(v, nth);
+		if (nth <= 0) {
+			throw new IllegalArgumentException("Invalid terms input");
+		}
 		
-		// check out of bounds
-		int size = coefficients.size();
-		if(nth < size) size = nth;
+		// the convergents come straight from the recurrence, 
+		// there is no need to fold the coefficients back
+		ContinuedFraction cf = new ContinuedFraction(v);
+		while (nth-- > 0 && cf.advance());
 		
-		Rational R = new Rational(coefficients.get(size - 1));
-		for (int i = size - 2; i >= 0; i--) {
-			R = R.invert();
-			R = R.add(new Rational(coefficients.get(i)));
+		// a value beyond the range of longs has no convergent, but such a double is an integer
+		if (cf.getTerms() == 0) {
+			return new Rational(new BigDecimal(v).toBigInteger(), BigInteger.ONE);
 		}
-		
-		return new Rational(R);
+		return cf.getConvergent();
 	}
 
 	// Returns nth rational approximation of v using the binary search in Stern-Brocot tree 
 	static Rational approxWithSBT(Double x, int nth) {
 		
-		//in order to round errors from double
-		double digits = Math.pow(10, 10);   
-		x = Math.round(x * digits) / digits;
+		// the search itself lives in SternBrocot, so it can also be resumed
+		SternBrocot sbt = new SternBrocot(x);
+		while(nth-- > 0 && sbt.advance());
+		return sbt.getBest();
+	}
+	
+	/*
+	 * Mutable Rational used to fold long sequences of GCD / LCM / multiplications
+	 * in place, without creating intermediate Rational objects on every step.
+	 * The fraction is always kept in reduced form, so for reduced inputs
+	 * gcd(a/b, c/d) = gcd(a, c) / lcm(b, d) and lcm(a/b, c/d) = lcm(a, c) / gcd(b, d)
+	 * Like Rational it moves to BigIntegers only when the longs would overflow
+	 */
+	public static final class Accumulator {
+		
+		// Variables
+		private long numerator;
+		private long denominator;
+		
+		// null unless the accumulated value does not fit in longs
+		private BigInteger bigNumerator;
+		private BigInteger bigDenominator;
 		
+		// Constructors
+		
+		// the empty accumulator is 0, which is the identity element of gcd
+		public Accumulator() {
+			this.numerator   = 0;
+			this.denominator = 1;
+		}
 		
-		int num = (int)Math.floor(x);
-		Rational left  = new Rational(num, 1);
-		Rational right = new Rational(num + 1, 1);
-		Rational best = left;
-		double bestError = Math.abs(best.toDouble() - x);
+		public Accumulator(Rational rational) {
+			this.set(rational);
+		}
 		
-		// do Stern-Brocot binary search
-		while(nth-- > 0 && bestError != 0) {
+		// Setters
+		public Accumulator set(Rational rational) {
 			
-			// check if best has changed or not
-			boolean flag = true;
+			if (rational == null) {
+				throw new NullPointerException("Must supply a non-null Object value");
+			}
+			numerator      = rational.numerator;
+			denominator    = rational.denominator;
+			bigNumerator   = rational.bigNumerator;
+			bigDenominator = rational.bigDenominator;
+			return this;
+		}
 		
-			while(flag) {
-
-				// compute next possible rational approximation
-			    Rational mediant = Rational.mediant(left, right);
-			    if (x < mediant.toDouble())
-			       right = mediant;        // go left
-			    else
-			       left  = mediant;        // go right
+		public Accumulator set(long n, long d) {
 			
-			    // check if better and update the best
-			    double error = Math.abs(mediant.toDouble() - x); 
-			    if (error < bestError) {
-			       best = mediant;
-			       bestError = error;  
-			       flag = false;
-			       
-			    }
+			if (d == 0) {
+				throw new IllegalArgumentException("Denominator cannot be 0");
+			}
+			numerator      = n;
+			denominator    = d;
+			bigNumerator   = null;
+			bigDenominator = null;
+			this.reduce();
+			return this;
+		}
+		
+		// stores an already reduced fraction with positive denominator
+		private Accumulator setBig(BigInteger n, BigInteger d) {
+			
+			if (n.bitLength() < 64 && d.bitLength() < 64) {
+				numerator      = n.longValue();
+				denominator    = d.longValue();
+				bigNumerator   = null;
+				bigDenominator = null;
+			}
+			else {
+				bigNumerator   = n;
+				bigDenominator = d;
+			}
+			return this;
+		}
+		
+		// Getters
+		
+		// throws ArithmeticException if the numerator does not fit in a long
+		public long getNumerator() {
+			
+			if (isBig()) {
+				throw new ArithmeticException("Numerator does not fit in a long, use getBigNumerator()");
+			}
+			return numerator;
+		}
+		
+		// throws ArithmeticException if the denominator does not fit in a long
+		public long getDenominator() {
+			
+			if (isBig()) {
+				throw new ArithmeticException("Denominator does not fit in a long, use getBigDenominator()");
+			}
+			return denominator;
+		}
+		
+		public BigInteger getBigNumerator() {
+			return isBig() ? bigNumerator : BigInteger.valueOf(numerator);
+		}
+		
+		public BigInteger getBigDenominator() {
+			return isBig() ? bigDenominator : BigInteger.valueOf(denominator);
+		}
+		
+		// Returns true if the accumulated value is held in BigIntegers
+		public boolean isBig() {
+			return bigNumerator != null;
+		}
+		
+		// Returns Double representation of the accumulated value
+		public double toDouble() {
+			
+			if (isBig()) {
+				return Rational.toDouble(bigNumerator, bigDenominator);
+			}
+			return (double) numerator / denominator;
+		}
+		
+		// Returns the accumulated value as a Rational, a shared &
+		// read only one for small values (see valueOf())
+		public Rational toRational() {
+			
+			if (isBig()) {
+				return new Rational(bigNumerator, bigDenominator);
+			}
+			return Rational.valueOf(numerator, denominator);
+		}
+		
+		@Override
+		public String toString() {
+			return this.toRational().toString();
+		}
+		
+		// Methods
+		
+		// this = gcd(this, that)
+		public Accumulator gcdWith(Rational that) {
+			
+			if (that.isBig()) {
+				return this.bigGcdWith(that.bigNumerator, that.bigDenominator);
+			}
+			return this.gcdWith(that.numerator, that.denominator);
+		}
+		
+		// this = gcd(this, n / d), where n / d is in reduced form
+		public Accumulator gcdWith(long n, long d) {
+			
+			if (isBig()) {
+				return this.bigGcdWith(BigInteger.valueOf(n), BigInteger.valueOf(d));
+			}
+			try {
+				long lcm = LCM(denominator, d);
+				numerator   = GCD(numerator, n);
+				denominator = lcm;
+			}
+			catch (ArithmeticException e) {
+				overflows.increment();
+				this.bigGcdWith(BigInteger.valueOf(n), BigInteger.valueOf(d));
+			}
+			return this;
+		}
+		
+		private Accumulator bigGcdWith(BigInteger n, BigInteger d) {
+			
+			slowOperations.increment();
+			return this.setBig(getBigNumerator().gcd(n), LCM(getBigDenominator(), d));
+		}
+		
+		// this = lcm(this, that)
+		public Accumulator lcmWith(Rational that) {
+			
+			if (that.isBig()) {
+				return this.bigLcmWith(that.bigNumerator, that.bigDenominator);
+			}
+			return this.lcmWith(that.numerator, that.denominator);
+		}
+		
+		// this = lcm(this, n / d), where n / d is in reduced form
+		public Accumulator lcmWith(long n, long d) {
+			
+			if (isBig()) {
+				return this.bigLcmWith(BigInteger.valueOf(n), BigInteger.valueOf(d));
+			}
+			
+			// zero is the absorbing element of lcm
+			if (numerator == 0 || n == 0) {
+				numerator   = 0;
+				denominator = 1;
+				return this;
+			}
+			try {
+				numerator   = LCM(numerator, n);
+				denominator = GCD(denominator, d);
+			}
+			catch (ArithmeticException e) {
+				overflows.increment();
+				this.bigLcmWith(BigInteger.valueOf(n), BigInteger.valueOf(d));
+			}
+			return this;
+		}
+		
+		private Accumulator bigLcmWith(BigInteger n, BigInteger d) {
+			
+			slowOperations.increment();
+			if (getBigNumerator().signum() == 0 || n.signum() == 0) {
+				return this.setBig(BigInteger.ZERO, BigInteger.ONE);
+			}
+			return this.setBig(LCM(getBigNumerator(), n), getBigDenominator().gcd(d));
+		}
+		
+		// this = this * that
+		public Accumulator multiplyBy(Rational that) {
+			
+			if (that.isBig()) {
+				return this.bigMultiplyBy(that.bigNumerator, that.bigDenominator);
+			}
+			return this.multiplyBy(that.numerator, that.denominator);
+		}
+		
+		// this = this * (n / d), where n / d is in reduced form
+		public Accumulator multiplyBy(long n, long d) {
+			
+			if (d == 0) {
+				throw new IllegalArgumentException("Denominator cannot be 0");
+			}
+			if (isBig()) {
+				return this.bigMultiplyBy(BigInteger.valueOf(n), BigInteger.valueOf(d));
+			}
+			if (numerator == 0 || n == 0) {
+				numerator   = 0;
+				denominator = 1;
+				return this;
+			}
+			
+			try {
+				// reduce p1/q2 & p2/q1 first, then multiply
+				long g1 = GCD(numerator, d);
+				long g2 = GCD(n, denominator);
+				long num = Math.multiplyExact(numerator / g1, n / g2);
+				long den = Math.multiplyExact(denominator / g2, d / g1);
+				
+				if (den < 0) {
+					den = Math.negateExact(den);
+					num = Math.negateExact(num);
+				}
+				numerator   = num;
+				denominator = den;
+			}
+			catch (ArithmeticException e) {
+				overflows.increment();
+				this.bigMultiplyBy(BigInteger.valueOf(n), BigInteger.valueOf(d));
+			}
+			return this;
+		}
+		
+		private Accumulator bigMultiplyBy(BigInteger n, BigInteger d) {
+			
+			if (d.signum() == 0) {
+				throw new IllegalArgumentException("Denominator cannot be 0");
+			}
+			slowOperations.increment();
+			
+			BigInteger num = getBigNumerator().multiply(n);
+			BigInteger den = getBigDenominator().multiply(d);
+			if (den.signum() < 0) {
+				den = den.negate();
+				num = num.negate();
+			}
+			BigInteger divisor = num.gcd(den);
+			return this.setBig(num.divide(divisor), den.divide(divisor));
+		}
+		
+		// this = this / that
+		public Accumulator divideBy(Rational that) {
+			
+			if (that.isBig()) {
+				return this.bigMultiplyBy(that.bigDenominator, that.bigNumerator);
+			}
+			return this.multiplyBy(that.denominator, that.numerator);
+		}
+		
+		// this = this / that
+		public Accumulator divideBy(Accumulator that) {
+			
+			if (that.isBig()) {
+				return this.bigMultiplyBy(that.bigDenominator, that.bigNumerator);
+			}
+			return this.multiplyBy(that.denominator, that.numerator);
+		}
+		
+		// this = this / (n / d), where n / d is in reduced form
+		public Accumulator divideBy(long n, long d) {
+			return this.multiplyBy(d, n);
+		}
+		
+		// Reduces accumulated fraction to simple form
+		private void reduce() {
+			
+			if (denominator < 0) {
+				denominator = -denominator;
+				numerator   = -numerator;
+			}
+			if (numerator == 0) {
+				denominator = 1;
+				return;
 			}
+			long divisor = GCD(numerator, denominator);
+			numerator   /= divisor;
+			denominator /= divisor;
 		}
-		return best;
 	}
 			
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+// Description
+/*
+ * A thread-safe memo cache with a bounded size. The keys are spread over
+ * a number of segments, each one a small LRU map with its own lock, so
+ * threads working on different keys rarely wait for each other. When a
+ * segment is full its least recently used entry is evicted.
+ *
+ * The cache keeps statistics of hits, misses & evictions
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public final class MemoCache<K, V> {
+
+	// Variables
+	private final Segment<K, V>[] segments;
+	private final int mask;
+	private final int capacity;
+
+	// Statistics
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	// Constructors
+	public MemoCache(int capacity) {
+		this(capacity, 16);
+	}
+
+	@SuppressWarnings("unchecked")
+	public MemoCache(int capacity, int concurrency) {
+
+		if (capacity <= 0 || concurrency <= 0) {
+			throw new IllegalArgumentException("Capacity & concurrency must be greater than 0");
+		}
+
+		// the number of segments is a power of 2, but never more than the capacity
+		int count = 1;
+		while (count < concurrency && count < capacity) count <<= 1;
+
+		this.capacity = capacity;
+		this.mask = count - 1;
+		this.segments = (Segment<K, V>[]) new Segment<?, ?>[count];
+		for (int i = 0; i < count; i++) {
+			int size = capacity / count + ((i < capacity % count) ? 1 : 0);
+			segments[i] = new Segment<K, V>(size, evictions);
+		}
+	}
+
+	// Getters
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	// Returns the fraction of the lookups that found their value
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return (total == 0) ? 0 : (double) h / total;
+	}
+
+	// Returns the number of entries inside the cache
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> s : segments) {
+			synchronized (s) {
+				size += s.size();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + size() + "/" + capacity + " hits=" + getHits() + " misses=" + getMisses()
+				+ " evictions=" + getEvictions();
+	}
+
+	// Methods
+
+	// Returns the cached value of key, or null if there is none
+	public V get(K key) {
+
+		Segment<K, V> s = segment(key);
+		V value;
+		synchronized (s) {
+			value = s.get(key);
+		}
+		if (value == null) misses.increment();
+		else hits.increment();
+		return value;
+	}
+
+	// Returns the cached value of key, computing and storing it on a miss
+	// the loader runs outside the lock, so two threads might compute the same value
+	public V get(K key, Function<? super K, ? extends V> loader) {
+
+		V value = this.get(key);
+		if (value != null) return value;
+
+		value = loader.apply(key);
+		if (value != null) this.put(key, value);
+		return value;
+	}
+
+	public void put(K key, V value) {
+
+		if (key == null || value == null) {
+			throw new NullPointerException("Must supply non-null Object values");
+		}
+		Segment<K, V> s = segment(key);
+		synchronized (s) {
+			s.put(key, value);
+		}
+	}
+
+	// Removes all the entries, the statistics are kept
+	public void clear() {
+		for (Segment<K, V> s : segments) {
+			synchronized (s) {
+				s.clear();
+			}
+		}
+	}
+
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+
+	private Segment<K, V> segment(K key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & mask];
+	}
+
+	// An access ordered map that drops its eldest entry when full
+	@SuppressWarnings("serial")
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private final int capacity;
+		private final LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
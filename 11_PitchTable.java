@@ -0,0 +1,123 @@
+// Description
+/*
+ * Precomputed pitches of all the 128 MIDI keys, which include the 88 keys
+ * of the piano (A0 is MIDI key 21 & piano key 1). The frequencies and the
+ * names are kept in arrays, so going from a key to its frequency, name or
+ * Note and back is a single lookup instead of logs, powers & string work.
+ *
+ * The Notes handed out by the table are shared between all the users,
+ * so they are read only & their setters throw
+ */
+
+import java.util.HashMap;
+
+public final class PitchTable {
+
+	// Constants
+	static final int MIDI_KEYS  = 128;
+	static final int PIANO_KEYS = 88;
+	// MIDI key = piano key + PIANO_OFFSET
+	static final int PIANO_OFFSET = 20;
+
+	// the table of the piano range used by class Note
+	static final PitchTable STANDARD = new PitchTable(Note.MIN.getFrequency());
+
+	// Variables
+	private final double[] frequencies = new double[MIDI_KEYS];
+	private final String[] names = new String[MIDI_KEYS];
+	private final Note[] notes = new Note[MIDI_KEYS];
+	private final HashMap<String, Integer> keys = new HashMap<String, Integer>();
+
+	// the frequency of piano key 1 (A0)
+	private final double reference;
+
+	// Constructors
+	public PitchTable(double frequencyOfA0) {
+
+		if (frequencyOfA0 <= 0) {
+			throw new IllegalArgumentException("Frequency cannot be less or equal to 0");
+		}
+		this.reference = frequencyOfA0;
+
+		for (int midi = 0; midi < MIDI_KEYS; midi++) {
+
+			long key = midi - PIANO_OFFSET;
+			frequencies[midi] = Note.ComputeFrequencyFromKey(frequencyOfA0, key);
+			names[midi] = Note.NameKey(key);
+			notes[midi] = Note.Shared(names[midi], frequencies[midi]);
+
+			// every spelling of the name finds the key, ex. A#4/Bb4, A#4 & Bb4
+			keys.put(names[midi], midi);
+			for (String spelling : names[midi].split("/")) {
+				keys.put(spelling, midi);
+			}
+		}
+	}
+
+	// Getters
+	public double getReference() {
+		return reference;
+	}
+
+	// Returns the frequency of a MIDI key
+	public double frequency(int midi) {
+		return frequencies[midi];
+	}
+
+	// Returns the name of a MIDI key
+	public String name(int midi) {
+		return names[midi];
+	}
+
+	// Returns the shared Note of a MIDI key
+	public Note note(int midi) {
+		return notes[midi];
+	}
+
+	// Returns the frequency of a piano key, from 1 (A0) to 88 (C8)
+	public double pianoFrequency(int key) {
+		return frequencies[checkPianoKey(key) + PIANO_OFFSET];
+	}
+
+	// Returns the shared Note of a piano key, from 1 (A0) to 88 (C8)
+	public Note pianoNote(int key) {
+		return notes[checkPianoKey(key) + PIANO_OFFSET];
+	}
+
+	// Methods
+
+	// Returns true if the piano key (which may lie outside the piano) has a MIDI key
+	public static boolean contains(long key) {
+		return key + PIANO_OFFSET >= 0 && key + PIANO_OFFSET < MIDI_KEYS;
+	}
+
+	// Returns the nearest MIDI key to a frequency, which may lie outside 0 - 127
+	public long midiKey(double frequency) {
+		return Math.round(12 * Math.log(frequency / reference) / Math.log(2)) + 1 + PIANO_OFFSET;
+	}
+
+	// Returns the MIDI key of a name without cent error, ex. C4, C#4 or Db4,
+	// or -1 if the name is not inside the table
+	public int midiKey(String name) {
+		Integer midi = keys.get(name);
+		return (midi == null) ? -1 : midi;
+	}
+
+	// Returns the shared Note if the frequency is the one of a MIDI key
+	// (up to the precision of Note.FrequencyFromKey), otherwise null
+	public Note lookup(double frequency) {
+
+		long midi = midiKey(frequency);
+		if (midi < 0 || midi >= MIDI_KEYS) return null;
+
+		return (Note.Round(frequency) == frequencies[(int) midi]) ? notes[(int) midi] : null;
+	}
+
+	private static int checkPianoKey(int key) {
+
+		if (key < 1 || key > PIANO_KEYS) {
+			throw new IllegalArgumentException("Piano keys go from 1 to " + PIANO_KEYS);
+		}
+		return key;
+	}
+}
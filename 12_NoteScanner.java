@@ -0,0 +1,222 @@
+// Description
+/*
+ * A single pass scanner of Note names in scientific pitch notation
+ *
+ *     <pitch class><accidentals><octave><cent error>   ex. Ab3-20c
+ *
+ * The accidentals are X (+2), # (+1) & b (-1), which can be repeated
+ * (bb is a double flat). A name may carry an alternative spelling after
+ * a slash, as the names created by Note.NameFrequency do, ex. D#2/Eb2+14c;
+ * the alternative spelling must be the same piano key.
+ *
+ * The result of a scan is the piano key & the cent error packed inside
+ * one long, so parsing a valid name allocates nothing. The bulk methods
+ * parse a whole buffer of names into primitive arrays
+ */
+
+public final class NoteScanner {
+
+	// Constants
+
+	// piano key of every pitch class inside octave 0, from A to G
+	private static final int[] PITCH_KEYS = { 1, 3, -8, -6, -4, -3, -1 };
+
+	// Constructors
+	private NoteScanner() {
+	}
+
+	// Methods
+
+	// Returns the packed piano key & cent error of a Note name
+	public static long scan(CharSequence name) {
+		return scan(name, 0, name.length());
+	}
+
+	// Returns the packed piano key & cent error of the
+	// Note name between the indexes from (inclusive) & to (exclusive)
+	public static long scan(CharSequence name, int from, int to) {
+
+		int position = from;
+
+		long pitch = scanPitch(name, position, to);
+		int key = key(pitch);
+		position = end(pitch);
+
+		// the alternative spelling is checked & skipped
+		if (position < to && name.charAt(position) == '/') {
+			long alternative = scanPitch(name, position + 1, to);
+			if (key(alternative) != key) {
+				throw new IllegalArgumentException("Spellings of a Note name must be the same key: " + name.subSequence(from, to));
+			}
+			position = end(alternative);
+		}
+
+		// Find the error deviation in cents
+		int cents = 0;
+		if (position < to) {
+
+			char sign = name.charAt(position);
+			int start = position + 1;
+			int end = digits(name, start, to);
+			if ((sign != '+' && sign != '-') || end == start || end >= to || name.charAt(end) != 'c') {
+				throw new IllegalArgumentException("Invalid cent error information: " + name.subSequence(from, to));
+			}
+			cents = number(name, start, end);
+			if (sign == '-') cents = -cents;
+			position = end + 1;
+		}
+
+		if (position != to) {
+			throw new IllegalArgumentException("Invalid Note name: " + name.subSequence(from, to));
+		}
+		return pack(key, cents);
+	}
+
+	// Returns the packed piano key of a pitch class with accidentals & octave,
+	// with the index where the scan stopped in place of the cent error
+	private static long scanPitch(CharSequence name, int position, int to) {
+
+		// Find pitch class lowest piano key
+		char c = (position < to) ? name.charAt(position) : 0;
+		if (c < 'A' || c > 'G') {
+			throw new IllegalArgumentException("You must include pitch class note information");
+		}
+		int key = PITCH_KEYS[c - 'A'];
+		position++;
+
+		// Find accidentals
+		for (; position < to; position++) {
+			c = name.charAt(position);
+			if      (c == 'X') key += 2;
+			else if (c == '#') key += 1;
+			else if (c == 'b') key -= 1;
+			else break;
+		}
+
+		// Find octave range
+		int start = (position < to && name.charAt(position) == '-') ? position + 1 : position;
+		int end = digits(name, start, to);
+		if (end == start) {
+			throw new IllegalArgumentException("You must include octave information");
+		}
+		int octave = number(name, start, end);
+		if (start != position) octave = -octave;
+
+		return pack(Math.addExact(key, Math.multiplyExact(12, octave)), end);
+	}
+
+	// Returns the index after the last digit starting at position
+	private static int digits(CharSequence name, int position, int to) {
+
+		while (position < to && name.charAt(position) >= '0' && name.charAt(position) <= '9') position++;
+		return position;
+	}
+
+	// Returns the value of the digits between from & to
+	private static int number(CharSequence name, int from, int to) {
+
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			value = Math.addExact(Math.multiplyExact(value, 10), name.charAt(i) - '0');
+		}
+		return value;
+	}
+
+	// Returns the piano key of a packed scan
+	public static int key(long packed) {
+		return (int) (packed >> 32);
+	}
+
+	// Returns the cent error of a packed scan
+	public static int cents(long packed) {
+		return (int) packed;
+	}
+
+	private static int end(long packed) {
+		return (int) packed;
+	}
+
+	static long pack(int key, int cents) {
+		return ((long) key << 32) | (cents & 0xFFFFFFFFL);
+	}
+
+	// Returns the number of names in a buffer, where the names
+	// are separated by white space or commas
+	public static int count(CharSequence buffer) {
+
+		int count = 0;
+		for (int i = 0, n = buffer.length(); i < n; ) {
+			i = skip(buffer, i, n, true);
+			if (i == n) break;
+			count++;
+			i = skip(buffer, i, n, false);
+		}
+		return count;
+	}
+
+	// Parses every name of a buffer, where the names are separated by white space
+	// or commas, & writes the piano keys & the cent errors inside the given arrays,
+	// returns the number of names
+	public static int scanAll(CharSequence buffer, int[] keys, int[] cents) {
+
+		int count = 0;
+		for (int i = 0, n = buffer.length(); i < n; ) {
+			i = skip(buffer, i, n, true);
+			if (i == n) break;
+
+			int end = skip(buffer, i, n, false);
+			if (count >= keys.length || count >= cents.length) {
+				throw new IllegalArgumentException("Arrays are too small");
+			}
+			long packed = scan(buffer, i, end);
+			keys[count]  = key(packed);
+			cents[count] = cents(packed);
+			count++;
+			i = end;
+		}
+		return count;
+	}
+
+	// Parses every name of a buffer into arrays of piano keys & cent errors,
+	// result[0] holds the keys & result[1] the cent errors
+	public static int[][] scanAll(CharSequence buffer) {
+
+		int count = count(buffer);
+		int[][] result = new int[2][count];
+		scanAll(buffer, result[0], result[1]);
+		return result;
+	}
+
+	// Returns the first index from position on which is
+	// (separator = true) or is not (separator = false) a name
+	private static int skip(CharSequence buffer, int position, int to, boolean separator) {
+
+		while (position < to && isSeparator(buffer.charAt(position)) == separator) position++;
+		return position;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == ',' || Character.isWhitespace(c);
+	}
+
+	// Conversions
+
+	// Returns the frequency of a piano key with a cent error
+	static double frequency(int key, int cents) {
+
+		double frequency = Note.FrequencyFromKey(key);
+		if (cents != 0) frequency *= Math.pow(Interval.cent, cents);
+		return frequency;
+	}
+
+	// Returns the frequencies of every name of a buffer
+	static double[] frequencies(CharSequence buffer) {
+
+		int[][] scan = scanAll(buffer);
+		double[] frequencies = new double[scan[0].length];
+		for (int i = 0; i < frequencies.length; i++) {
+			frequencies[i] = frequency(scan[0][i], scan[1][i]);
+		}
+		return frequencies;
+	}
+}
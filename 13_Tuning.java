@@ -0,0 +1,239 @@
+// Description
+/*
+ * A tuning system, which gives a frequency to every key. The tuning repeats
+ * after a period (usually the octave of 1200 cent) and every period is
+ * divided into degrees, the sizes of which are kept in cent above the first
+ * degree. 12-TET has the degrees 0, 100, 200 ... 1100, a meantone or any
+ * other tuning has its own table.
+ *
+ * The keys are counted like the piano keys: the reference pitch (A4 in the
+ * common tunings) is the first degree 4 periods above key 1, so in 12-TET
+ * the keys are exactly the piano keys. The frequencies of the audible keys
+ * are precomputed & sorted, so the nearest key to a frequency is a binary
+ * search. A Tuning never changes after it is created, so it can be shared
+ * between threads freely
+ */
+
+import java.util.Arrays;
+
+public final class Tuning {
+
+	// Constants
+
+	// the range of frequencies with precomputed keys
+	static final double MIN_FREQUENCY = 8;
+	static final double MAX_FREQUENCY = 20000;
+
+	// 12-TET with A4 at the reference pitch of class Note
+	static final Tuning STANDARD = equal(Note.A4.getFrequency(), 12);
+
+	// Variables
+	private final double reference;
+	private final double period;
+	private final double[] cents;
+
+	// the ratio of one degree in equal temperaments, NaN in the others
+	private final double step;
+
+	// the frequency of key 1
+	private final double base;
+
+	// the precomputed frequencies of the keys from firstKey on
+	private final long firstKey;
+	private final double[] frequencies;
+
+	// Constructors
+	private Tuning(double reference, double[] cents, double period, double step) {
+
+		if (reference <= 0) {
+			throw new IllegalArgumentException("Frequency cannot be less or equal to 0");
+		}
+		if (period <= 0) {
+			throw new IllegalArgumentException("Period must be greater than 0");
+		}
+		if (cents.length == 0 || cents[0] != 0) {
+			throw new IllegalArgumentException("The first degree must be 0 cent");
+		}
+		for (int i = 1; i < cents.length; i++) {
+			if (cents[i] <= cents[i - 1] || cents[i] >= period) {
+				throw new IllegalArgumentException("Degrees must be increasing & smaller than the period");
+			}
+		}
+
+		this.reference = reference;
+		this.period = period;
+		this.cents = cents;
+		this.step = step;
+		this.base = reference / Math.pow(2, 4 * period / 1200);
+
+		// precompute the keys inside the audible range
+		long first = this.nearestKeyByCents(MIN_FREQUENCY);
+		long last  = this.nearestKeyByCents(MAX_FREQUENCY);
+		this.firstKey = first;
+		this.frequencies = new double[(int) (last - first + 1)];
+		for (int i = 0; i < frequencies.length; i++) {
+			frequencies[i] = this.compute(first + i);
+		}
+	}
+
+	// Returns the equal temperament with divisions degrees per octave,
+	// ex. equal(440, 12) is 12-TET & equal(440, 31) is 31-EDO
+	public static Tuning equal(double reference, int divisions) {
+
+		if (divisions <= 0) {
+			throw new IllegalArgumentException("Divisions must be greater than 0");
+		}
+		double size = 1200.0 / divisions;
+		double[] cents = new double[divisions];
+		for (int i = 0; i < divisions; i++) cents[i] = size * i;
+
+		return new Tuning(reference, cents, 1200, Math.pow(2, size / 1200));
+	}
+
+	// Returns the 12 note meantone made by a chain of fifths from Eb to G#,
+	// ex. meantone(440, 696.578) is the quarter-comma meantone
+	public static Tuning meantone(double reference, double fifthInCent) {
+
+		double[] cents = new double[12];
+		// the degrees are counted in semitones above A, which is the
+		// reference, so A is 0 fifths, E is 1 fifth & so on
+		for (int fifths = -6; fifths < 6; fifths++) {
+			double size = fifths * fifthInCent;
+			cents[Math.floorMod(7 * fifths, 12)] = size - 1200 * Math.floor(size / 1200);
+		}
+		return new Tuning(reference, cents, 1200, Double.NaN);
+	}
+
+	// Returns the tuning of any table of degrees, the first of which must be 0 cent
+	public static Tuning of(double reference, double[] cents, double period) {
+		return new Tuning(reference, Arrays.copyOf(cents, cents.length), period, Double.NaN);
+	}
+
+	// Getters
+	public double getReference() {
+		return reference;
+	}
+
+	public double getPeriod() {
+		return period;
+	}
+
+	// Returns the number of degrees inside a period
+	public int size() {
+		return cents.length;
+	}
+
+	// Returns the size in cent of a degree above the first one
+	public double getCents(int degree) {
+		return cents[degree];
+	}
+
+	public boolean isEqual() {
+		return !Double.isNaN(step);
+	}
+
+	@Override
+	public boolean equals(Object that) {
+
+		if (that == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+
+		if (that.getClass() != this.getClass()) return false;
+		Tuning t = (Tuning) that;
+		return reference == t.reference && period == t.period && Arrays.equals(cents, t.cents);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Double.hashCode(reference) + Double.hashCode(period)) + Arrays.hashCode(cents);
+	}
+
+	@Override
+	public String toString() {
+		return cents.length + " degrees per " + period + "c, reference " + reference + " Hz";
+	}
+
+	// Methods
+
+	// Returns the frequency of a key
+	public double frequency(long key) {
+
+		long index = key - firstKey;
+		if (index >= 0 && index < frequencies.length) return frequencies[(int) index];
+		return this.compute(key);
+	}
+
+	// Returns the size in cent of a number of degrees above the first degree
+	public double stepCents(long steps) {
+		return StepCents(cents, period, steps);
+	}
+
+	// Returns the size in cent of a number of degrees above the first degree
+	// of a scale, the cents of its degrees repeat every period
+	static double StepCents(double[] cents, double period, long steps) {
+		return Math.floorDiv(steps, cents.length) * period + cents[Math.floorMod(steps, cents.length)];
+	}
+
+	// Returns the nearest key to a frequency
+	public long nearestKey(double frequency) {
+
+		if (frequency <= 0) {
+			throw new IllegalArgumentException("Frequency cannot be less or equal to 0");
+		}
+
+		int last = frequencies.length - 1;
+		if (frequency < frequencies[0] || frequency > frequencies[last]) {
+			return this.nearestKeyByCents(frequency);
+		}
+
+		int i = Arrays.binarySearch(frequencies, frequency);
+		if (i >= 0) return firstKey + i;
+
+		// the nearest of the two neighbours in cent, without logarithms:
+		// f is closer to low when f / low <= high / f
+		int high = -i - 1;
+		int low = high - 1;
+		boolean lower = frequency * frequency <= frequencies[low] * frequencies[high];
+		return firstKey + (lower ? low : high);
+	}
+
+	// Returns the number of degrees nearest to a size in cent
+	public long nearestStep(double size) {
+
+		long periods = (long) Math.floor(size / period);
+		double rest = size - periods * period;
+
+		int i = Arrays.binarySearch(cents, rest);
+		if (i >= 0) return periods * cents.length + i;
+
+		// the neighbour above the last degree is the first degree of the next period
+		int high = -i - 1;
+		int low = high - 1;
+		double above = (high < cents.length) ? cents[high] : period;
+		int degree = (rest - cents[low] <= above - rest) ? low : high;
+		return periods * cents.length + degree;
+	}
+
+	// Returns the name of a key, the names of the notes in 12 degree
+	// tunings, ex. C#4/Db4, otherwise <degree>\<size>_<period>, ex. 7\31_4
+	public String name(long key) {
+
+		if (cents.length == 12) return Note.NameKey(key);
+
+		long steps = key - 1;
+		return Math.floorMod(steps, cents.length) + "\\" + cents.length + "_" + Math.floorDiv(steps, cents.length);
+	}
+
+	// Returns the nearest key without the table
+	private long nearestKeyByCents(double frequency) {
+		return this.nearestStep(Interval.CentsFromRatio(frequency / base)) + 1;
+	}
+
+	// Returns the frequency of a key without the table, rounded like Note.FrequencyFromKey
+	private double compute(long key) {
+
+		if (this.isEqual()) return Note.Round(base * Math.pow(step, key - 1));
+		return Note.Round(base * Math.pow(2, this.stepCents(key - 1) / 1200));
+	}
+}
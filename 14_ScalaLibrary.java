@@ -0,0 +1,402 @@
+// Description
+/*
+ * A library of tunings in the Scala format (www.huygens-fokker.org/scala).
+ * A .scl file describes a scale: a line of description, the number of
+ * pitches & the pitches themselves, in cent (they contain a period, ex.
+ * 701.955) or as ratios (ex. 3/2 or 2). The last pitch is the period of
+ * the scale. A .kbm file maps the scale to the keyboard & gives the
+ * reference frequency, otherwise the first degree is A4 at 440 Hz.
+ *
+ * A whole directory of Scala files can be packed into a binary index with
+ * build(), which is later mapped in memory with open(), so loading a large
+ * library is one mmap instead of thousands of small parses. The index is
+ *
+ *     int magic, int version, int count
+ *     long offset of every scale, sorted by name
+ *     every scale: int length + UTF-8 name, int length + UTF-8 description,
+ *                  double reference, double period, int size, double[size] cents
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class ScalaLibrary {
+
+	// Constants
+	static final int MAGIC = 0x53434C58;   // SCLX
+	static final int VERSION = 1;
+	static final double DEFAULT_REFERENCE = 440;
+
+	private static final int HEADER = 12;
+
+	// Variables
+	private final ByteBuffer buffer;
+	private final int count;
+
+	// Constructors
+	private ScalaLibrary(ByteBuffer buffer) throws IOException {
+
+		if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a Scala library index");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported Scala library index version " + buffer.getInt(4));
+		}
+		this.buffer = buffer;
+		this.count = buffer.getInt(8);
+	}
+
+	// Returns the library of an index file created by build(), mapped in memory
+	public static ScalaLibrary open(Path index) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Index is too large to be mapped");
+			}
+			return new ScalaLibrary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	// Getters
+
+	// Returns the number of scales inside the library
+	public int size() {
+		return count;
+	}
+
+	public String getName(int i) {
+		return string(offset(i));
+	}
+
+	public String getDescription(int i) {
+		return string(skipString(offset(i)));
+	}
+
+	public double getReference(int i) {
+		return buffer.getDouble(numbers(i));
+	}
+
+	public double getPeriod(int i) {
+		return buffer.getDouble(numbers(i) + 8);
+	}
+
+	// Returns the number of degrees of a scale
+	public int degrees(int i) {
+		return buffer.getInt(numbers(i) + 16);
+	}
+
+	// Returns the size in cent of a degree of a scale above its first degree
+	public double getCents(int i, int degree) {
+
+		if (degree < 0 || degree >= degrees(i)) {
+			throw new IndexOutOfBoundsException("Invalid degree " + degree);
+		}
+		return buffer.getDouble(numbers(i) + 20 + 8 * degree);
+	}
+
+	// Returns the degrees of a scale in cent
+	public double[] cents(int i) {
+
+		int position = numbers(i) + 20;
+		double[] cents = new double[degrees(i)];
+		for (int k = 0; k < cents.length; k++) {
+			cents[k] = buffer.getDouble(position + 8 * k);
+		}
+		return cents;
+	}
+
+	public Scale scale(int i) {
+		return new Scale(getName(i), getDescription(i), getReference(i), cents(i), getPeriod(i));
+	}
+
+	public Tuning tuning(int i) {
+		return Tuning.of(getReference(i), cents(i), getPeriod(i));
+	}
+
+	// Returns the index of a scale by its name, or -1 if it is not inside the library
+	public int indexOf(String name) {
+
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = getName(mid).compareTo(name);
+			if (c < 0) low = mid + 1;
+			else if (c > 0) high = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	// Returns the position of a scale inside the index
+	private int offset(int i) {
+
+		if (i < 0 || i >= count) {
+			throw new IndexOutOfBoundsException("Invalid scale " + i);
+		}
+		return (int) buffer.getLong(HEADER + 8 * i);
+	}
+
+	// Returns the position of the numbers of a scale, after its name & description
+	private int numbers(int i) {
+		return skipString(skipString(offset(i)));
+	}
+
+	private int skipString(int position) {
+		return position + 4 + buffer.getInt(position);
+	}
+
+	private String string(int position) {
+
+		byte[] bytes = new byte[buffer.getInt(position)];
+		for (int k = 0; k < bytes.length; k++) {
+			bytes[k] = buffer.get(position + 4 + k);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// Methods
+
+	// Packs every .scl file of a directory into an index file, a .kbm file with the
+	// same name gives the reference of its scale. Files which are not valid scales
+	// or cannot be represented by a Tuning are left out, returns the number of scales
+	public static int build(Path directory, Path index) throws IOException {
+
+		List<Scale> scales = new ArrayList<Scale>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.scl")) {
+			for (Path file : files) {
+				try {
+					Scale scale = readScale(file);
+					String name = file.getFileName().toString();
+					Path keyboard = file.resolveSibling(name.substring(0, name.length() - 4) + ".kbm");
+					if (Files.exists(keyboard)) scale = readKeyboard(keyboard, scale);
+
+					// make sure the scale is a valid Tuning
+					scale.toTuning();
+					scales.add(scale);
+				}
+				catch (IllegalArgumentException e) {
+					// not a scale we can use, leave it out
+				}
+			}
+		}
+		Collections.sort(scales, (a, b) -> a.getName().compareTo(b.getName()));
+
+		try (OutputStream stream = Files.newOutputStream(index)) {
+			write(scales, stream);
+		}
+		return scales.size();
+	}
+
+	// Writes the scales in the index format
+	static void write(List<Scale> scales, OutputStream stream) throws IOException {
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(scales.size());
+
+		List<byte[]> names = new ArrayList<byte[]>();
+		List<byte[]> descriptions = new ArrayList<byte[]>();
+		long offset = HEADER + 8L * scales.size();
+		for (Scale s : scales) {
+			byte[] name = s.getName().getBytes(StandardCharsets.UTF_8);
+			byte[] description = s.getDescription().getBytes(StandardCharsets.UTF_8);
+			names.add(name);
+			descriptions.add(description);
+
+			out.writeLong(offset);
+			offset += 4 + name.length + 4 + description.length + 8 + 8 + 4 + 8L * s.size();
+		}
+		if (offset > Integer.MAX_VALUE) {
+			throw new IOException("Index is too large to be mapped");
+		}
+
+		for (int i = 0; i < scales.size(); i++) {
+			Scale s = scales.get(i);
+			out.writeInt(names.get(i).length);
+			out.write(names.get(i));
+			out.writeInt(descriptions.get(i).length);
+			out.write(descriptions.get(i));
+			out.writeDouble(s.getReference());
+			out.writeDouble(s.getPeriod());
+			out.writeInt(s.size());
+			for (int k = 0; k < s.size(); k++) {
+				out.writeDouble(s.getCents(k));
+			}
+		}
+		out.flush();
+	}
+
+	// Returns the scale of a .scl file, named after the file
+	public static Scale readScale(Path file) throws IOException {
+
+		String name = file.getFileName().toString();
+		if (name.endsWith(".scl")) name = name.substring(0, name.length() - 4);
+		return parseScale(name, Files.readAllLines(file, StandardCharsets.ISO_8859_1));
+	}
+
+	// Returns the scale of the lines of a .scl file
+	static Scale parseScale(String name, List<String> lines) {
+
+		List<String> values = values(lines, true);
+		if (values.size() < 2) {
+			throw new IllegalArgumentException("Scale " + name + " is missing its description or size");
+		}
+
+		String description = values.get(0).trim();
+		int size = Integer.parseInt(token(values.get(1)));
+		if (size <= 0 || values.size() < 2 + size) {
+			throw new IllegalArgumentException("Scale " + name + " is missing pitches");
+		}
+
+		// the first degree is the unison, the last pitch is the period
+		double[] cents = new double[size];
+		for (int i = 1; i < size; i++) {
+			cents[i] = pitch(token(values.get(1 + i)));
+		}
+		double period = pitch(token(values.get(1 + size)));
+
+		return new Scale(name, description, DEFAULT_REFERENCE, cents, period);
+	}
+
+	// Returns the scale with the reference frequency of a .kbm file
+	public static Scale readKeyboard(Path file, Scale scale) throws IOException {
+		return parseKeyboard(Files.readAllLines(file, StandardCharsets.ISO_8859_1), scale);
+	}
+
+	// Returns the scale with the reference frequency of the lines of a .kbm file,
+	// only linear mappings are supported (the map size is 0 or every key in order)
+	static Scale parseKeyboard(List<String> lines, Scale scale) {
+
+		List<String> values = values(lines, false);
+		if (values.size() < 7) {
+			throw new IllegalArgumentException("Keyboard mapping is missing its header");
+		}
+
+		int mapSize   = Integer.parseInt(token(values.get(0)));
+		int middle    = Integer.parseInt(token(values.get(3)));
+		int reference = Integer.parseInt(token(values.get(4)));
+		double frequency = Double.parseDouble(token(values.get(5)));
+		int octave    = Integer.parseInt(token(values.get(6)));
+
+		if (mapSize != 0) {
+			if (mapSize != scale.size() || octave != scale.size() || values.size() < 7 + mapSize) {
+				throw new IllegalArgumentException("Only linear keyboard mappings are supported");
+			}
+			for (int i = 0; i < mapSize; i++) {
+				String degree = token(values.get(7 + i));
+				if (degree.equals("x") || Integer.parseInt(degree) != i) {
+					throw new IllegalArgumentException("Only linear keyboard mappings are supported");
+				}
+			}
+		}
+
+		// the frequency of the first degree, which is mapped to the middle key
+		double steps = Tuning.StepCents(scale.cents, scale.getPeriod(), reference - middle);
+		double first = frequency / Math.pow(2, steps / 1200);
+		return new Scale(scale.getName(), scale.getDescription(), first, scale.cents, scale.getPeriod());
+	}
+
+	// Returns the lines without the comments, which begin with !,
+	// & without the blank ones (the description of a .scl may be blank)
+	private static List<String> values(List<String> lines, boolean description) {
+
+		List<String> values = new ArrayList<String>();
+		for (String line : lines) {
+			if (line.startsWith("!")) continue;
+			if (line.trim().isEmpty() && !(description && values.isEmpty())) continue;
+			values.add(line);
+		}
+		return values;
+	}
+
+	// Returns the first word of a line, the rest is a comment
+	private static String token(String line) {
+
+		String[] words = line.trim().split("\\s+");
+		if (words[0].isEmpty()) {
+			throw new IllegalArgumentException("Missing value");
+		}
+		return words[0];
+	}
+
+	// Returns a pitch in cent, ex. 701.955, 3/2 or 2
+	static double pitch(String value) {
+
+		if (value.indexOf('.') != -1) return Double.parseDouble(value);
+
+		int slash = value.indexOf('/');
+		double numerator   = Long.parseLong((slash < 0) ? value : value.substring(0, slash));
+		double denominator = (slash < 0) ? 1 : Long.parseLong(value.substring(slash + 1));
+		if (numerator <= 0 || denominator <= 0) {
+			throw new IllegalArgumentException("Ratio must be greater than 0: " + value);
+		}
+		return Interval.CentsFromRatio(numerator / denominator);
+	}
+
+	// A scale of a .scl file, with the degrees in cent as a primitive array
+	public static final class Scale {
+
+		private final String name;
+		private final String description;
+		private final double reference;
+		private final double[] cents;
+		private final double period;
+
+		Scale(String name, String description, double reference, double[] cents, double period) {
+			this.name = name;
+			this.description = description;
+			this.reference = reference;
+			this.cents = cents;
+			this.period = period;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		// Returns the frequency of the first degree, A4 at 440 Hz without a .kbm file
+		public double getReference() {
+			return reference;
+		}
+
+		public double getPeriod() {
+			return period;
+		}
+
+		// Returns the number of degrees
+		public int size() {
+			return cents.length;
+		}
+
+		public double getCents(int degree) {
+			return cents[degree];
+		}
+
+		public Tuning toTuning() {
+			return Tuning.of(reference, cents, period);
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + description;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+// Description
+/*
+ * A streaming stage which turns the output of a pitch tracker, frames of
+ * (time, frequency), into note on & note off events. Every frame is mapped
+ * to the nearest key of a Tuning with its precomputed table, & two kinds of
+ * smoothing keep the notes from flickering:
+ *
+ *     hysteresis: the sounding key changes only when another key is closer
+ *                 to the frequency by more than a margin in cent
+ *     duration:   a new key (or silence) must last a minimum number of
+ *                 frames before it replaces the sounding one
+ *
+ * Frequencies which are not positive numbers are silence. The tracker keeps
+ * only the state of the sounding & of the candidate key, so its memory is
+ * constant & it creates no objects per frame
+ */
+
+public final class NoteTracker {
+
+	// Constants
+
+	// the key of silence
+	static final long SILENCE = Long.MIN_VALUE;
+
+	// Receives the events of the tracker
+	public interface Listener {
+
+		// a key starts sounding at time, with its mean deviation in cent
+		void noteOn(double time, long key, double cents);
+
+		// a key stops sounding at time
+		void noteOff(double time, long key);
+	}
+
+	// Variables
+	private final Tuning tuning;
+	private final Listener listener;
+	private final double hysteresis;
+	private final int minimumFrames;
+
+	// the sounding key & the one which may replace it
+	private long key = SILENCE;
+	private long candidate = SILENCE;
+	private double candidateTime;
+	private double candidateCents;
+	private int candidateFrames;
+
+	// Constructors
+	public NoteTracker(Listener listener) {
+		this(Tuning.STANDARD, listener, 20, 3);
+	}
+
+	public NoteTracker(Tuning tuning, Listener listener, double hysteresisInCent, int minimumFrames) {
+
+		if (tuning == null || listener == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		if (hysteresisInCent < 0 || minimumFrames < 1) {
+			throw new IllegalArgumentException("Hysteresis cannot be negative & the minimum frames must be at least 1");
+		}
+		this.tuning = tuning;
+		this.listener = listener;
+		this.hysteresis = hysteresisInCent;
+		this.minimumFrames = minimumFrames;
+	}
+
+	// Getters
+	public Tuning getTuning() {
+		return tuning;
+	}
+
+	// Returns the sounding key, or SILENCE
+	public long getKey() {
+		return key;
+	}
+
+	public boolean isSounding() {
+		return key != SILENCE;
+	}
+
+	// Methods
+
+	// Processes the frames between the indexes from (inclusive) & to (exclusive)
+	public void process(double[] times, double[] frequencies, int from, int to) {
+
+		if (times.length < to || frequencies.length < to || from < 0 || from > to) {
+			throw new IllegalArgumentException("Invalid range of frames");
+		}
+		for (int i = from; i < to; i++) {
+			this.process(times[i], frequencies[i]);
+		}
+	}
+
+	public void process(double[] times, double[] frequencies) {
+		this.process(times, frequencies, 0, Math.min(times.length, frequencies.length));
+	}
+
+	// Processes a single frame
+	public void process(double time, double frequency) {
+
+		long next = SILENCE;
+		double cents = 0;
+
+		if (frequency > 0 && frequency < Double.POSITIVE_INFINITY) {
+
+			next = tuning.nearestKey(frequency);
+			cents = Interval.CentsFromRatio(frequency / tuning.frequency(next));
+
+			// stay on the sounding key unless the new one is clearly closer
+			if (key != SILENCE && next != key) {
+				double current = Interval.CentsFromRatio(frequency / tuning.frequency(key));
+				if (Math.abs(current) - Math.abs(cents) <= hysteresis) {
+					next = key;
+					cents = current;
+				}
+			}
+		}
+
+		if (next == key) {
+			// any candidate was just a glitch
+			candidate = SILENCE;
+			candidateFrames = 0;
+			return;
+		}
+
+		if (next != candidate || candidateFrames == 0) {
+			candidate = next;
+			candidateTime = time;
+			candidateCents = 0;
+			candidateFrames = 0;
+		}
+		candidateCents += cents;
+		candidateFrames++;
+
+		if (candidateFrames >= minimumFrames) {
+			this.change(candidate, candidateTime, candidateCents / candidateFrames);
+		}
+	}
+
+	// Ends the sounding key at time, ex. at the end of the stream
+	public void flush(double time) {
+
+		if (key != SILENCE) listener.noteOff(time, key);
+		key = SILENCE;
+		candidate = SILENCE;
+		candidateFrames = 0;
+	}
+
+	// Replaces the sounding key
+	private void change(long next, double time, double cents) {
+
+		if (key != SILENCE) listener.noteOff(time, key);
+		if (next != SILENCE) listener.noteOn(time, next, cents);
+
+		key = next;
+		candidate = SILENCE;
+		candidateFrames = 0;
+	}
+}
@@ -0,0 +1,299 @@
+// Description
+/*
+ * A set of pitch classes of an equal temperament, which divides the octave
+ * into a number of equal steps (12 in 12-TET). Pitch class k is k steps
+ * above the root, & the set is a bit mask where bit k is on when the class
+ * is inside the set, so a major triad of 12-TET is {0, 4, 7} = 0b10010001.
+ *
+ * With the bits, transposing & taking an inversion is a rotation of the
+ * mask, & the number of pairs that are k steps apart is the number of bits
+ * of mask & rotate(mask, k). Temperaments up to 64 steps fit in one long,
+ * the larger ones are kept in an array of longs.
+ *
+ * Structures whose intervals lie exactly on the steps & inside one octave
+ * can be converted to a set & back without any loss
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class PitchClassSet {
+
+	// Constants
+	static final int TET = 12;
+
+	// Variables
+	private final int divisions;
+	private final long[] words;
+
+	// Constructors
+
+	// the array is owned by the new set
+	private PitchClassSet(int divisions, long[] words) {
+		this.divisions = divisions;
+		this.words = words;
+	}
+
+	// Returns the set of the given pitch classes
+	public static PitchClassSet of(int divisions, int... classes) {
+
+		long[] words = new long[words(divisions)];
+		for (int k : classes) {
+			int c = Math.floorMod(k, divisions);
+			words[c >>> 6] |= 1L << c;
+		}
+		return new PitchClassSet(divisions, words);
+	}
+
+	// Returns the 12-TET set of a 12 bit mask
+	public static PitchClassSet valueOf(int mask) {
+		return valueOf(TET, mask);
+	}
+
+	// Returns the set of a mask, for temperaments up to 64 steps
+	public static PitchClassSet valueOf(int divisions, long mask) {
+
+		if (divisions > 64) {
+			throw new IllegalArgumentException("Only temperaments up to 64 steps fit in a mask");
+		}
+		words(divisions);
+		return new PitchClassSet(divisions, new long[] { mask & full(divisions) });
+	}
+
+	// Returns the 12-TET set of a Structure, or null if it is not one
+	public static PitchClassSet valueOf(Structure s) {
+		return valueOf(s, TET);
+	}
+
+	// Returns the set of a Structure, or null if its intervals are not exactly
+	// on the steps, increasing from the root & smaller than an octave
+	public static PitchClassSet valueOf(Structure s, int divisions) {
+
+		ArrayList<Interval> intervals = s.getIntervals();
+		double[] cents = new double[intervals.size()];
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = intervals.get(i).getCents();
+		}
+		return valueOf(cents, divisions);
+	}
+
+	// Returns the set of the sizes in cent of some Intervals, with the same conditions
+	public static PitchClassSet valueOf(double[] cents, int divisions) {
+
+		if (cents.length == 0 || cents[0] != 0) return null;
+
+		double step = 1200.0 / divisions;
+		long[] words = new long[words(divisions)];
+		double previous = -1;
+		for (double c : cents) {
+
+			long k = Math.round(c / step);
+			if (c <= previous || k >= divisions || k * step != c) return null;
+
+			words[(int) (k >>> 6)] |= 1L << k;
+			previous = c;
+		}
+		return new PitchClassSet(divisions, words);
+	}
+
+	private static int words(int divisions) {
+
+		if (divisions <= 0) {
+			throw new IllegalArgumentException("Divisions must be greater than 0");
+		}
+		return (divisions + 63) >>> 6;
+	}
+
+	// Returns a mask with the lowest n bits on, n up to 64
+	private static long full(int n) {
+		return (n == 64) ? -1L : (1L << n) - 1;
+	}
+
+	// Getters
+	public int getDivisions() {
+		return divisions;
+	}
+
+	// Returns the number of pitch classes inside the set
+	public int size() {
+
+		int size = 0;
+		for (long w : words) size += Long.bitCount(w);
+		return size;
+	}
+
+	public boolean contains(int k) {
+
+		int c = Math.floorMod(k, divisions);
+		return (words[c >>> 6] & (1L << c)) != 0;
+	}
+
+	// Returns the bit mask, for temperaments up to 64 steps
+	public long mask() {
+
+		if (words.length > 1) {
+			throw new UnsupportedOperationException("Only temperaments up to 64 steps fit in a mask");
+		}
+		return words[0];
+	}
+
+	// Returns the pitch classes in ascending order
+	public int[] toArray() {
+
+		int[] classes = new int[this.size()];
+		for (int c = next(0), i = 0; c >= 0; c = next(c + 1)) {
+			classes[i++] = c;
+		}
+		return classes;
+	}
+
+	@Override
+	public boolean equals(Object that) {
+
+		if (that == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+
+		if (that.getClass() != this.getClass()) return false;
+		PitchClassSet s = (PitchClassSet) that;
+		return divisions == s.divisions && Arrays.equals(words, s.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * divisions + Arrays.hashCode(words);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(this.toArray()).replace('[', '{').replace(']', '}');
+	}
+
+	// Methods
+
+	// Returns the set transposed k steps up
+	public PitchClassSet transpose(int k) {
+		return new PitchClassSet(divisions, this.rotate(Math.floorMod(-k, divisions)));
+	}
+
+	// Returns the mirror image of the set around the root, k -> -k
+	public PitchClassSet invert() {
+
+		long[] result = new long[words.length];
+		for (int c = next(0); c >= 0; c = next(c + 1)) {
+			int m = Math.floorMod(-c, divisions);
+			result[m >>> 6] |= 1L << m;
+		}
+		return new PitchClassSet(divisions, result);
+	}
+
+	// Returns the set with its num-th pitch class (counted from 0) as the root,
+	// which is the num-th inversion of a chord
+	public PitchClassSet inversion(int num) {
+
+		int c = next(0);
+		for (int i = 0; i < num && c >= 0; i++) c = next(c + 1);
+		if (c < 0) {
+			throw new IllegalArgumentException("Num of Inversion is not Supported");
+		}
+		return this.transpose(-c);
+	}
+
+	// Returns the canonical form of the set: of all its modes (the
+	// inversions to each one of its classes) the one with the smallest
+	// mask, so all the modes of a set have the same canonical form
+	public PitchClassSet canonical() {
+
+		int first = next(0);
+		if (first < 0) return this;
+
+		PitchClassSet best = this.transpose(-first);
+		for (int c = next(first + 1); c >= 0; c = next(c + 1)) {
+			PitchClassSet mode = this.transpose(-c);
+			if (mode.compareWords(best) < 0) best = mode;
+		}
+		return best;
+	}
+
+	// Returns the prime form of the set, the smaller canonical
+	// form of the set & of its mirror image
+	public PitchClassSet primeForm() {
+
+		PitchClassSet canonical = this.canonical();
+		PitchClassSet mirror = this.invert().canonical();
+		return (mirror.compareWords(canonical) < 0) ? mirror : canonical;
+	}
+
+	// Compares the masks as unsigned numbers
+	private int compareWords(PitchClassSet that) {
+
+		for (int i = words.length - 1; i >= 0; i--) {
+			int c = Long.compareUnsigned(this.words[i], that.words[i]);
+			if (c != 0) return c;
+		}
+		return 0;
+	}
+
+	// Returns how many pairs of pitch classes are k steps apart for
+	// every interval class k from 1 to divisions / 2, index k - 1
+	public int[] intervalVector() {
+
+		int[] vector = new int[divisions / 2];
+		for (int k = 1; k <= vector.length; k++) {
+
+			long[] rotated = this.rotate(k);
+			int count = 0;
+			for (int i = 0; i < words.length; i++) {
+				count += Long.bitCount(words[i] & rotated[i]);
+			}
+			// a pair half an octave apart is found from both of its classes
+			vector[k - 1] = (2 * k == divisions) ? count / 2 : count;
+		}
+		return vector;
+	}
+
+	// Returns the Intervals of the set from the root, ascending
+	public ArrayList<Interval> toIntervals() {
+
+		double step = 1200.0 / divisions;
+		ArrayList<Interval> intervals = new ArrayList<Interval>(this.size());
+		for (int c = next(0); c >= 0; c = next(c + 1)) {
+			intervals.add(Interval.FromCents(c * step));
+		}
+		return intervals;
+	}
+
+	public Structure toStructure() {
+		return new Structure(this.toIntervals());
+	}
+
+	// Returns the words with every class c moved to c - k
+	private long[] rotate(int k) {
+
+		if (words.length == 1) {
+			long w = words[0];
+			long rotated = (k == 0) ? w : (w >>> k) | (w << (divisions - k));
+			return new long[] { rotated & full(divisions) };
+		}
+
+		long[] result = new long[words.length];
+		for (int c = next(0); c >= 0; c = next(c + 1)) {
+			int m = Math.floorMod(c - k, divisions);
+			result[m >>> 6] |= 1L << m;
+		}
+		return result;
+	}
+
+	// Returns the first pitch class from c on, or -1 if there is none
+	private int next(int c) {
+
+		if (c >= divisions) return -1;
+		int i = c >>> 6;
+		long w = words[i] & (-1L << c);
+		while (w == 0) {
+			if (++i == words.length) return -1;
+			w = words[i];
+		}
+		return (i << 6) + Long.numberOfTrailingZeros(w);
+	}
+}
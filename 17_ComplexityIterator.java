@@ -0,0 +1,153 @@
+// Description
+/*
+ * Finds the Structures of a given size (12-TET masks of Interval.list with
+ * the root) in ascending complexity, one at a time. Adding an interval to a
+ * Structure can only raise the lcm & lower the gcd of its ratios, so the
+ * complexity of a partial Structure is a lower bound of all the Structures
+ * that complete it. A best first search with a heap of partial Structures
+ * pops the complete ones in ascending order without building the others.
+ *
+ * The ties are broken like in Structure.allCombinations, by the order of
+ * the recursion, & the inversions are removed by the same rule: a Structure
+ * is skipped when one of its inversions reached exactly (see InvertsExactly)
+ * comes before it, or comes after it & is kept. Only the inversions of the
+ * Structure are looked at, so the iterator yields exactly the list of
+ * allCombinations
+ */
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+final class ComplexityIterator implements Iterator<Structure> {
+
+	// Variables
+	private final int size;
+	private final int intervals = Interval.list.size();
+	private final Monzo[] monzos;
+
+	// the partial & complete Structures still to be searched
+	private final PriorityQueue<Node> heap = new PriorityQueue<Node>();
+
+	// the complete Structures known to be removed or kept
+	private final HashMap<Integer, Boolean> removed = new HashMap<Integer, Boolean>();
+
+	private Structure next;
+
+	// Constructors
+	ComplexityIterator(int size) {
+
+		if (size <= 0) {
+			throw new IllegalArgumentException("Size cannot be less or equal to 0");
+		}
+		this.size = size;
+		this.monzos = Structure.IntervalMonzos();
+
+		// the initial seed is the root
+		this.push(1);
+	}
+
+	// Methods
+
+	@Override
+	public boolean hasNext() {
+
+		if (next == null) next = this.find();
+		return next != null;
+	}
+
+	@Override
+	public Structure next() {
+
+		if (!this.hasNext()) {
+			throw new NoSuchElementException("No more Structures");
+		}
+		Structure s = next;
+		next = null;
+		return s;
+	}
+
+	// Returns the next Structure, or null if the search is over
+	private Structure find() {
+
+		Node node;
+		while ((node = heap.poll()) != null) {
+
+			if (Integer.bitCount(node.mask) == size) {
+				if (size == 1) return new Structure("1");
+				if (!this.removed(node)) {
+					return Structure.FromMask(node.mask, node.complexity);
+				}
+				continue;
+			}
+
+			int last = 31 - Integer.numberOfLeadingZeros(node.mask);
+			for (int i = last + 1; i < intervals; i++) {
+				this.push(node.mask | (1 << i));
+			}
+		}
+		return null;
+	}
+
+	// Returns true if allCombinations removes a complete Structure, the
+	// inversions after it are decided first like in its backward loop
+	private boolean removed(Node node) {
+
+		Boolean result = removed.get(node.mask);
+		if (result != null) return result;
+
+		result = false;
+		for (int m = node.mask & (node.mask - 1); m != 0 && !result; m &= m - 1) {
+
+			int bass = Integer.numberOfTrailingZeros(m);
+			if (!Structure.InvertsExactly(node.mask, bass)) continue;
+
+			int mask = Structure.Inversion(node.mask, bass);
+			Node inversion = new Node(mask, mask, Structure.Complexity(mask, monzos));
+			result = inversion.compareTo(node) <= 0 || !this.removed(inversion);
+		}
+		removed.put(node.mask, result);
+		return result;
+	}
+
+	// Adds a partial Structure to the heap if it can be completed
+	private void push(int mask) {
+
+		int missing = size - Integer.bitCount(mask);
+		int last = 31 - Integer.numberOfLeadingZeros(mask);
+		if (last + missing >= intervals) return;
+
+		// the first completion in the order of the recursion
+		// takes the next intervals right after the last one
+		int first = mask;
+		for (int i = 1; i <= missing; i++) first |= 1 << (last + i);
+
+		heap.add(new Node(mask, first, Structure.Complexity(mask, monzos)));
+	}
+
+	// A partial Structure with the bound of its complexity
+	private static final class Node implements Comparable<Node> {
+
+		final int mask;
+		final int first;
+		final double complexity;
+
+		Node(int mask, int first, double complexity) {
+			this.mask = mask;
+			this.first = first;
+			this.complexity = complexity;
+		}
+
+		@Override
+		public int compareTo(Node that) {
+
+			int c = Double.compare(this.complexity, that.complexity);
+			if (c != 0) return c;
+
+			// sets of the same size compare like their ascending sequences, the
+			// one with the lowest bit that differs comes first in the recursion
+			return Integer.compareUnsigned(Integer.reverse(that.first), Integer.reverse(this.first));
+		}
+	}
+}
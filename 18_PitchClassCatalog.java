@@ -0,0 +1,180 @@
+// Description
+/*
+ * A catalog of all the 4096 pitch class sets of 12-TET, with everything
+ * Structure would compute for them: the size, the interval vector, the
+ * canonical & prime forms, the mirror image, every inversion, complexity()
+ * & normComplexity(). The Structure of a set is taken from its lowest
+ * class, like Structure.inversion(0).
+ *
+ * The records have a fixed width & are stored in the order of their mask,
+ * so a lookup is an offset into a buffer. The catalog is built once with
+ * build() & written to a file, which open() maps in memory. The record is
+ *
+ *     0  double complexity        8  double normComplexity
+ *    16  short canonical form    18  short prime form
+ *    20  short mirror image      22  byte size
+ *    23  byte[6] interval vector 29  3 bytes of padding
+ *    32  short[12] inversions (the masks of inversion(n) for n < size)
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class PitchClassCatalog {
+
+	// Constants
+	static final int MAGIC = 0x50435343;   // PCSC
+	static final int VERSION = 1;
+	static final int SETS = 1 << PitchClassSet.TET;
+	static final int RECORD = 56;
+
+	private static final int HEADER = 16;
+
+	// Variables
+	private final ByteBuffer buffer;
+
+	// Constructors
+	private PitchClassCatalog(ByteBuffer buffer) throws IOException {
+
+		if (buffer.capacity() < HEADER + SETS * RECORD || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a pitch class catalog");
+		}
+		if (buffer.getInt(4) != VERSION || buffer.getInt(8) != SETS || buffer.getInt(12) != RECORD) {
+			throw new IOException("Unsupported pitch class catalog version " + buffer.getInt(4));
+		}
+		this.buffer = buffer;
+	}
+
+	// Returns the catalog of a file created by write(), mapped in memory
+	public static PitchClassCatalog open(Path file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new PitchClassCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	// Computes the whole catalog in memory
+	public static PitchClassCatalog build() {
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER + SETS * RECORD);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, SETS);
+		buffer.putInt(12, RECORD);
+
+		Monzo[] monzos = Structure.IntervalMonzos();
+		for (int mask = 0; mask < SETS; mask++) {
+
+			int position = HEADER + mask * RECORD;
+			PitchClassSet set = PitchClassSet.valueOf(mask);
+			int size = set.size();
+
+			// the empty set has no Structure
+			double complexity = (size == 0) ? Double.NaN
+					: Structure.Complexity((int) set.inversion(0).mask(), monzos);
+			buffer.putDouble(position, complexity);
+			buffer.putDouble(position + 8, Math.log(complexity) / size);
+
+			buffer.putShort(position + 16, (short) set.canonical().mask());
+			buffer.putShort(position + 18, (short) set.primeForm().mask());
+			buffer.putShort(position + 20, (short) set.invert().mask());
+			buffer.put(position + 22, (byte) size);
+
+			int[] vector = set.intervalVector();
+			for (int k = 0; k < vector.length; k++) {
+				buffer.put(position + 23 + k, (byte) vector[k]);
+			}
+			for (int n = 0; n < size; n++) {
+				buffer.putShort(position + 32 + 2 * n, (short) set.inversion(n).mask());
+			}
+		}
+
+		try {
+			return new PitchClassCatalog(buffer);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Writes the catalog to a file
+	public void write(Path file) throws IOException {
+
+		ByteBuffer copy = buffer.duplicate();
+		copy.clear();
+		try (OutputStream stream = Files.newOutputStream(file)) {
+			Channels.newChannel(stream).write(copy);
+		}
+	}
+
+	// Getters
+
+	public double complexity(int mask) {
+		return buffer.getDouble(record(mask));
+	}
+
+	public double normComplexity(int mask) {
+		return buffer.getDouble(record(mask) + 8);
+	}
+
+	// Returns the mode with the smallest mask, the same for all the inversions
+	public int canonical(int mask) {
+		return buffer.getShort(record(mask) + 16) & 0xFFFF;
+	}
+
+	// Returns the smaller canonical form of the set & of its mirror image
+	public int primeForm(int mask) {
+		return buffer.getShort(record(mask) + 18) & 0xFFFF;
+	}
+
+	// Returns the mirror image around the root, k -> -k
+	public int mirror(int mask) {
+		return buffer.getShort(record(mask) + 20) & 0xFFFF;
+	}
+
+	public int size(int mask) {
+		return buffer.get(record(mask) + 22);
+	}
+
+	// Returns how many pairs are k semitones apart, k from 1 to 6
+	public int intervalClass(int mask, int k) {
+
+		if (k < 1 || k > 6) {
+			throw new IllegalArgumentException("Interval classes go from 1 to 6");
+		}
+		return buffer.get(record(mask) + 22 + k);
+	}
+
+	public int[] intervalVector(int mask) {
+
+		int position = record(mask);
+		int[] vector = new int[6];
+		for (int k = 0; k < vector.length; k++) {
+			vector[k] = buffer.get(position + 23 + k);
+		}
+		return vector;
+	}
+
+	// Returns the mask of the num-th inversion of the set
+	public int inversion(int mask, int num) {
+
+		if (num < 0 || num >= size(mask)) {
+			throw new IllegalArgumentException("Num of Inversion is not Supported");
+		}
+		return buffer.getShort(record(mask) + 32 + 2 * num) & 0xFFFF;
+	}
+
+	private static int record(int mask) {
+
+		if (mask < 0 || mask >= SETS) {
+			throw new IllegalArgumentException("Masks go from 0 to " + (SETS - 1));
+		}
+		return HEADER + mask * RECORD;
+	}
+}
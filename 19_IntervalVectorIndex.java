@@ -0,0 +1,211 @@
+// Description
+/*
+ * An inverted index from interval vectors to Structures. The interval
+ * vector counts the pairs of a Structure which are 1 to 6 semitones apart
+ * (see Structure.intervalClasses), & it is kept packed in a long with a
+ * byte for every class, so a vector is a single key.
+ *
+ * Structures with the same vector that are not inversions or mirror images
+ * of each other are Z-related (ex. the all-interval tetrachords 0146 &
+ * 0137). The index finds them, all the Structures of a vector & the ones
+ * with the nearest vectors by L1 distance, over the few hundred distinct
+ * vectors instead of every Structure
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+public final class IntervalVectorIndex {
+
+	// Constants
+	static final int CLASSES = 6;
+
+	// Variables
+	private final ArrayList<Structure> structures;
+
+	// the prime form mask of every Structure, -1 if it is not 12-TET
+	private final int[] primes;
+
+	// the indexes of the Structures of every packed vector
+	private final HashMap<Long, int[]> index = new HashMap<Long, int[]>();
+
+	// the distinct vectors, for the nearest search
+	private final long[] vectors;
+
+	// Constructors
+
+	// the index of all the Structures of allCombinations
+	public IntervalVectorIndex() {
+		this(AllStructures());
+	}
+
+	public IntervalVectorIndex(Collection<Structure> structures) {
+
+		this.structures = new ArrayList<Structure>(structures);
+		this.primes = new int[this.structures.size()];
+
+		HashMap<Long, ArrayList<Integer>> lists = new HashMap<Long, ArrayList<Integer>>();
+		for (int i = 0; i < primes.length; i++) {
+
+			Structure s = this.structures.get(i);
+			PitchClassSet set = PitchClassSet.valueOf(s);
+			primes[i] = (set == null) ? -1 : (int) set.primeForm().mask();
+
+			long key = s.packedIntervalVector();
+			ArrayList<Integer> list = lists.get(key);
+			if (list == null) {
+				list = new ArrayList<Integer>();
+				lists.put(key, list);
+			}
+			list.add(i);
+		}
+
+		vectors = new long[lists.size()];
+		int v = 0;
+		for (Long key : lists.keySet()) {
+			ArrayList<Integer> list = lists.get(key);
+			int[] indexes = new int[list.size()];
+			for (int i = 0; i < indexes.length; i++) indexes[i] = list.get(i);
+			index.put(key, indexes);
+			vectors[v++] = key;
+		}
+		Arrays.sort(vectors);
+	}
+
+	// Returns the Structures of allCombinations for every size of 12-TET
+	static ArrayList<Structure> AllStructures() {
+
+		ArrayList<Structure> all = new ArrayList<Structure>();
+		for (int size = 1; size <= PitchClassSet.TET; size++) {
+			all.addAll(Structure.allCombinations(size));
+		}
+		return all;
+	}
+
+	// Getters
+
+	// Returns the number of Structures inside the index
+	public int size() {
+		return structures.size();
+	}
+
+	// Returns the number of distinct interval vectors
+	public int vectors() {
+		return vectors.length;
+	}
+
+	public Structure get(int i) {
+		return structures.get(i);
+	}
+
+	// Methods
+
+	// Returns the Structures with the given interval vector
+	public ArrayList<Structure> withVector(int[] vector) {
+		return this.structures(index.get(Pack(vector)));
+	}
+
+	// Returns the Structures with the same interval vector as s, which
+	// are neither inversions nor mirror images of it
+	public ArrayList<Structure> zRelated(Structure s) {
+
+		PitchClassSet set = PitchClassSet.valueOf(s);
+		if (set == null) {
+			throw new IllegalArgumentException("Only 12-TET Structures have Z-relations");
+		}
+		int prime = (int) set.primeForm().mask();
+
+		ArrayList<Structure> related = new ArrayList<Structure>();
+		int[] indexes = index.get(s.packedIntervalVector());
+		if (indexes == null) return related;
+
+		for (int i : indexes) {
+			if (primes[i] != prime) related.add(structures.get(i));
+		}
+		return related;
+	}
+
+	// Returns the k Structures with the nearest interval vectors by
+	// L1 distance, the ties in the order of the index
+	public ArrayList<Structure> nearest(int[] vector, int k) {
+
+		if (k < 0) {
+			throw new IllegalArgumentException("K cannot be less than 0");
+		}
+		long target = Pack(vector);
+
+		// sort the distinct vectors by distance, packed with their position
+		long[] order = new long[vectors.length];
+		for (int v = 0; v < vectors.length; v++) {
+			order[v] = ((long) Distance(target, vectors[v]) << 32) | v;
+		}
+		Arrays.sort(order);
+
+		ArrayList<Structure> nearest = new ArrayList<Structure>(Math.min(k, structures.size()));
+		for (int v = 0; v < order.length && nearest.size() < k; v++) {
+
+			// all the Structures at the same distance, in the order of the index
+			int distance = (int) (order[v] >>> 32);
+			ArrayList<Integer> tied = new ArrayList<Integer>();
+			for (; v < order.length && (int) (order[v] >>> 32) == distance; v++) {
+				for (int i : index.get(vectors[(int) order[v]])) tied.add(i);
+			}
+			v--;
+
+			tied.sort(null);
+			for (int i = 0; i < tied.size() && nearest.size() < k; i++) {
+				nearest.add(structures.get(tied.get(i)));
+			}
+		}
+		return nearest;
+	}
+
+	private ArrayList<Structure> structures(int[] indexes) {
+
+		ArrayList<Structure> result = new ArrayList<Structure>();
+		if (indexes == null) return result;
+		for (int i : indexes) result.add(structures.get(i));
+		return result;
+	}
+
+	// Conversions
+
+	// Returns an interval vector packed in a long, a byte for every class
+	static long Pack(int[] vector) {
+
+		if (vector.length != CLASSES) {
+			throw new IllegalArgumentException("Interval vectors have " + CLASSES + " classes");
+		}
+		long packed = 0;
+		for (int k = 0; k < CLASSES; k++) {
+			if (vector[k] < 0 || vector[k] > 0xFF) {
+				throw new IllegalArgumentException("Interval vector counts go from 0 to 255");
+			}
+			packed |= (long) vector[k] << (8 * k);
+		}
+		return packed;
+	}
+
+	static int[] Unpack(long packed) {
+
+		int[] vector = new int[CLASSES];
+		for (int k = 0; k < CLASSES; k++) {
+			vector[k] = (int) (packed >>> (8 * k)) & 0xFF;
+		}
+		return vector;
+	}
+
+	// Returns the L1 distance of two packed vectors
+	static int Distance(long a, long b) {
+
+		int distance = 0;
+		for (int k = 0; k < CLASSES; k++) {
+			int x = (int) (a >>> (8 * k)) & 0xFF;
+			int y = (int) (b >>> (8 * k)) & 0xFF;
+			distance += Math.abs(x - y);
+		}
+		return distance;
+	}
+}
@@ -11,12 +11,21 @@ public class Interval implements Comparable<Interval> {
 
 	// Variables
 	
+	// the size of the Interval in cents, sizes add up when 
+	// we stack Intervals, so going up & down is just + and -
+	private double cents;
+	
 	// name gives information about the quality of Interval 
 	// the size & the error deviation from that quality in cent
-	// name is not unique
+	// name is not unique, it is created on first use if not given
 	private String name;  
 	// we alow ration to be strictly greater or equal to 1
-	private Double ratio;
+	// it is computed from cents on first use if not given (NaN)
+	private double ratio = Double.NaN;
+	// quantized size used for hashing, computed on first use
+	private long centKey = NO_KEY;
+	// true for the read only Intervals handed out by StructurePattern
+	private boolean shared;
 
 	// Constructors
 	public Interval() {
@@ -25,7 +34,7 @@ public class Interval implements Comparable<Interval> {
 	
 	// create new Interval only with ratio, name will be created automaticaly
 	public Interval(double ratio) {
-		this(NameRatio(ratio), ratio);
+		this(null, ratio);
 	}
 
 	// copy contructor
@@ -34,8 +43,10 @@ public class Interval implements Comparable<Interval> {
 		if (interval == null) {
 			throw new NullPointerException("Must supply a non-null Object value");
 		}
-		this.name  = new String(interval.name);
-		this.ratio = new Double(interval.ratio);
+		this.cents   = interval.cents;
+		this.name    = interval.name;
+		this.ratio   = interval.ratio;
+		this.centKey = interval.centKey;
 	}
 	
 	// create analyticaly new Interval
@@ -45,6 +56,7 @@ public class Interval implements Comparable<Interval> {
 			throw new IllegalArgumentException("Ratio cannot be less or equal to 0");
 		}
 		this.ratio = (ratio < 1) ? 1 / ratio : ratio; 
+		this.cents = CentsFromRatio(this.ratio);
 		this.name  = name;
 	}
 	
@@ -56,34 +68,92 @@ public class Interval implements Comparable<Interval> {
 		}
 		ratio = N.getFrequency() / M.getFrequency();
 		if (ratio < 1) ratio = 1 / ratio;	
-		name = NameRatio(ratio);
+		cents = CentsFromRatio(ratio);
+	}
+	
+	// create new Interval from its size in cents, ratio & name will be created when needed
+	static Interval FromCents(double cents) {
+		return FromCents(null, cents);
+	}
+	
+	// create analyticaly new Interval from its size in cents
+	static Interval FromCents(String name, double cents) {
+		
+		if (Double.isNaN(cents) || Double.isInfinite(cents)) {
+			throw new IllegalArgumentException("Cents must be a finite number");
+		}
+		return new Interval(name, Math.abs(cents), Double.NaN);
+	}
+	
+	// create new Interval directly from its fields
+	private Interval(String name, double cents, double ratio) {
+		this.name  = name;
+		this.cents = cents;
+		this.ratio = ratio;
+	}
+	
+	// Returns a read only Interval, which may be shared between all the users
+	// the lazy fields are filled now, so the shared Interval never changes
+	static Interval Shared(double cents) {
+		
+		Interval interval = FromCents(cents);
+		interval.getName();
+		interval.getRatio();
+		interval.centKey();
+		interval.shared = true;
+		return interval;
+	}
+	
+	private void checkNotShared() {
+		if (shared) {
+			throw new UnsupportedOperationException("Shared Intervals cannot be modified");
+		}
 	}
 	
 	// Setters
 	public void setName(String n) {
+		checkNotShared();
 		name = n;
 	}
 
+	// the name is kept as it is, like the ratio is kept by setName()
 	public void setRatio(Double r) {
-		ratio = r;
+		
+		checkNotShared();
+		if (r <= 0) {
+			throw new IllegalArgumentException("Ratio cannot be less or equal to 0");
+		}
+		name = this.getName();
+		ratio = (r < 1) ? 1 / r : r;
+		cents = CentsFromRatio(ratio);
+		centKey = NO_KEY;
 	}
 
 	// Getters
 	public String getName() {
+		
+		if (name == null) {
+			name = NameCents(cents);
+		}
 		return name;
 	}
 
-	public Double getRatio() {
+	public double getRatio() {
+		
+		if (Double.isNaN(ratio)) {
+			ratio = Math.pow(2, cents / 1200);
+		}
 		return ratio;
 	}
+	
+	public double getCents() {
+		return cents;
+	}
 
 	@Override
-	// Returns -1, 0, +1 
+	// Returns -1, 0, +1, sizes with the same key (see centKey()) are equal
 	public int compareTo(Interval that) {
-		Double dv = this.ratio - that.ratio;
-		if (dv < 0) return -1;
-		if (dv > 0) return +1;
-		return 0;
+		return Long.compare(this.centKey(), that.centKey());
 	}
 
 	@Override
@@ -103,30 +173,41 @@ public class Interval implements Comparable<Interval> {
 	@Override
 	// Returns String representation of this
 	public String toString() {
-		return this.name;
+		return this.getName();
 	}
 	
 	@Override
-	// HashCode Consistent with equals() & compareTo()
+	// HashCode Consistent with equals() & compareTo(), near identical
+	// sizes from up() & down() have the same key so they are equal
 	public int hashCode() {
-		return this.ratio.hashCode();
+		return Long.hashCode(this.centKey());
+	}
+	
+	// Returns the size of this Interval quantized in millionths of a cent
+	public long centKey() {
+		
+		if (centKey == NO_KEY) {
+			centKey = Math.round(cents * KEYS_PER_CENT);
+		}
+		return centKey;
+	}
+	
+	// Returns the size of a ratio quantized in millionths of a cent,
+	// ratios that differ only by rounding errors share the same key
+	static long CentKey(double ratio) {
+		return Math.round(CentsFromRatio(ratio) * KEYS_PER_CENT);
 	}
 
 	// Methods
 	
 	// Returns resulting Interval from going this an Interval that up
 	public Interval up(Interval that) {
-		
-		Double r = this.ratio * that.ratio;
-		return new Interval(NameRatio(r), r);
+		return FromCents(this.cents + that.cents);
 	}
 	
 	// Returns resulting Interval from going this an Interval that down
 	public Interval down(Interval that) {
-		
-		Double r = this.ratio / that.ratio;
-		if (r < 1) r = 1 / r;		
-		return new Interval(NameRatio(r), r);
+		return FromCents(Math.abs(this.cents - that.cents));
 	}
 	
 	// Returns repeating this Interval n times
@@ -135,30 +216,82 @@ public class Interval implements Comparable<Interval> {
 		if (n < 0) {
 			throw new IllegalArgumentException("Value cannot be negative");
 		}
-		Double r = Math.pow(this.ratio, n);
-		return new Interval(NameRatio(r), r);
+		return FromCents(this.cents * n);
 	}
 	
 	// Returns Rational approximation of this Interval ratio within 
-	// the specified error (in cent) using Stern-Brocot tree method (see class Rational)
+	// the specified error (in cent) using Stern-Brocot tree method (see class SternBrocot)
+	// or the approximation index if one is set and has a fraction close enough
+	// the result is a new Rational, which the caller owns
  	public Rational approxRatio(double errorInCent) {
  		
- 		errorInCent = Math.abs(errorInCent);
-		Rational rational = Rational.ONE;
-		Double error = errorInCent + 1;
-		
-		for (int term = 1; error > errorInCent; term++) { 
-			
-			rational = Rational.approxWithSBT(this.ratio, term);
-			error = Math.abs(Math.log(this.ratio / rational.toDouble()) / Math.log(cent));  
-		}
-		return rational;
-	}
+ 		Rational rational = this.approximation(errorInCent);
+ 		return rational.isShared() ? new Rational(rational) : rational;
+ 	}
  	
  	// the default error in cent is set 16 in order to obtain simple Rational forms
  	public Rational approxRatio() {
  		return this.approxRatio(16);
  	}
+ 	
+ 	// Returns the above approximation without a copy, it may be a shared & read only
+ 	// Rational (see Rational.valueOf()), for the callers which only read it
+ 	// the results are memoized in the approximation cache, if one is set
+ 	Rational approximation(double errorInCent) {
+ 		
+ 		errorInCent = Math.abs(errorInCent);
+ 		
+ 		MemoCache<ApproxKey, Rational> cache = approximationCache;
+ 		if (cache == null) {
+ 			return this.searchRatio(errorInCent);
+ 		}
+ 		
+ 		ApproxKey key = new ApproxKey(this.centKey(), errorInCent);
+ 		Rational rational = cache.get(key);
+ 		if (rational == null) {
+ 			rational = this.searchRatio(errorInCent);
+ 			// only the shared Rationals are read only & safe to hand out again
+ 			if (rational.isShared()) cache.put(key, rational);
+ 		}
+ 		return rational;
+ 	}
+ 	
+ 	// Computes the above approximation without the cache
+ 	private Rational searchRatio(double errorInCent) {
+ 		
+ 		FareyIndex index = approximationIndex;
+ 		if (index != null) {
+ 			int i = index.indexOf(this.getRatio(), errorInCent);
+ 			if (i >= 0) return index.getRational(i);
+ 		}
+ 		
+ 		double logCent = Math.log(cent);
+ 		
+ 		// walk the best approximations once, without restarting the search
+ 		double ratio = this.getRatio();
+ 		SternBrocot sbt = new SternBrocot(ratio);
+ 		while (sbt.advance()) {
+ 			
+ 			double approx = (double) sbt.getNumerator() / sbt.getDenominator();
+ 			double error = Math.abs(Math.log(ratio / approx) / logCent);
+ 			if (error <= errorInCent) break;
+ 		}
+		return sbt.getBest();
+	}
+ 	
+ 	Rational approximation() {
+ 		return this.approximation(16);
+ 	}
+ 	
+ 	// Returns the prime exponents of the above approximation, 
+ 	// or null if it has a prime factor above Monzo.PRIME_LIMIT
+ 	public Monzo approxMonzo(double errorInCent) {
+ 		return Monzo.valueOf(this.approximation(errorInCent));
+ 	}
+ 	
+ 	public Monzo approxMonzo() {
+ 		return this.approxMonzo(16);
+ 	}
 
  	/*
  	 * UNDER CONSTRUCTION
@@ -170,13 +303,57 @@ public class Interval implements Comparable<Interval> {
 		if (ratio <= 0) 
 			throw new IllegalArgumentException("Ratio cannot be less or equal to 0");
 		if (ratio < 1) ratio = 1 / ratio;		
+		return NameCents(CentsFromRatio(ratio));
+	}
+	
+	// Assignes an Iterval name of a Tuning to the corresponding Interval ratio,
+	// the names of 12 degree tunings are the usual ones, otherwise <steps>\<size>
+	public static String NameRatio(double ratio, Tuning tuning) { 
+
+		if (ratio <= 0) 
+			throw new IllegalArgumentException("Ratio cannot be less or equal to 0");
+		if (ratio < 1) ratio = 1 / ratio;
+		
+		double cents = CentsFromRatio(ratio);
+		long steps = tuning.nearestStep(cents);
+		String name = (tuning.size() == 12) 
+				? NameSemitones((int) steps) 
+				: steps + "\\" + tuning.size();
+		
+		// the error from the degree of the tuning
+		return name.concat(NameError(cents - tuning.stepCents(steps)));
+	}
+	
+	// Assignes an Iterval name to the corresponding Interval size in cents
+	public static String NameCents(double cents) {
+		
+		cents = Math.abs(cents);
+		
+		// calculate the nearest interval name
+		int num  = Semitones(cents);
+		String name = NameSemitones(num);
+		
+		// calculate and print the error 
+		return name.concat(NameError(cents - 100 * num));
+	}
+	
+	// Returns the error in cent, ex. +14c, or an empty String if it is in tune
+	static String NameError(double errorInCent) {
+		
+		if (Math.abs(errorInCent) <= LIMIT_IN_CENT) return "";
+		
+		int error_cent = (int)Math.round(errorInCent);
+		String sign = (error_cent > 0) ? "+" : "-";
+		return sign + Math.abs(error_cent) + "c";
+	}
+	
+	// Assignes an Iterval name to a number of equal tempered semitones
+	static String NameSemitones(int num) {
 		
 		String[] intervals = { 
 				"O1", "m2", "M2", "m3", "M3", "P4", "TT", "P5", "m6", "M6", "m7", "M7" 
 		};
 		
-		// calculate the nearest interval name
-		int num  = (int)Math.round(12 * Math.log(ratio) / Math.log(2));
 		String name = intervals[num % 12];
 		
 		if (num == 0) //special case for U1
@@ -193,38 +370,101 @@ public class Interval implements Comparable<Interval> {
 				name = name.charAt(0) + note.toString();
 			}
 		}
-		
-		// calculate and print the error 
-		Double error  = ratio / Math.pow(2, num / 12.0);
-		int error_cent = (int)Math.round(Math.log(error) / Math.log(cent));
-		
-		if (error < 1 / limit || error > limit) {
-			String sign = (error_cent > 0) ? "+" : "-";
-			name = name.concat(sign + Math.abs(error_cent) + "c");
-		}
 		return name;
 	}
+	
+	// Returns the size of a ratio in cents
+	static double CentsFromRatio(double ratio) {
+		return 1200 * Math.log(ratio) / Math.log(2);
+	}
+	
+	// Returns the number of the nearest equal tempered semitones
+	static int Semitones(double cents) {
+		return (int)Math.round(cents / 100);
+	}
+	
+	// Returns true if the size is closer than the limit to an equal tempered Interval
+	static boolean InTune(double cents) {
+		return Math.abs(cents - 100 * Semitones(cents)) <= LIMIT_IN_CENT;
+	}
 
+	// Resolution of the cent keys & the marker of a missing key
+	static final double KEYS_PER_CENT = 1e6;
+	private static final long NO_KEY = Long.MIN_VALUE;
+	
 	// The standard system for comparing interval sizes is with cents
+	static final double LIMIT_IN_CENT = 6;  // Humans can identify differences between 5 to 6 cents
 	static final Double cent  = Math.pow(2, 1.0 / 1200);
-	static final Double limit = Math.pow(cent, 6);  // Humans can identify differences between 5 to 6 cents
+	static final Double limit = Math.pow(cent, LIMIT_IN_CENT);
+	
+	// Optional precomputed table for approxRatio, null means Stern-Brocot search only
+	private static volatile FareyIndex approximationIndex = null;
+	
+	static void setApproximationIndex(FareyIndex index) {
+		
+		approximationIndex = index;
+		// cached results might come from the previous index
+		MemoCache<ApproxKey, Rational> cache = approximationCache;
+		if (cache != null) cache.clear();
+	}
+	
+	static FareyIndex getApproximationIndex() {
+		return approximationIndex;
+	}
+	
+	// Memo cache of approxRatio, null disables it
+	private static volatile MemoCache<ApproxKey, Rational> approximationCache = 
+			new MemoCache<ApproxKey, Rational>(4096);
+	
+	static void setApproximationCache(MemoCache<ApproxKey, Rational> cache) {
+		approximationCache = cache;
+	}
+	
+	static MemoCache<ApproxKey, Rational> getApproximationCache() {
+		return approximationCache;
+	}
+	
+	// Key of the approximation cache, the quantized size & the error in cent
+	static final class ApproxKey {
+		
+		private final long centKey;
+		private final long error;
+		
+		ApproxKey(long centKey, double errorInCent) {
+			this.centKey = centKey;
+			this.error = Double.doubleToLongBits(errorInCent);
+		}
+		
+		@Override
+		public boolean equals(Object that) {
+			
+			if (!(that instanceof ApproxKey)) return false;
+			ApproxKey key = (ApproxKey) that;
+			return centKey == key.centKey && error == key.error;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(centKey) + Long.hashCode(error);
+		}
+	}
 	
 	// Main intervals
-	static final Interval H = new Interval("Half  Tone", Math.pow(cent, 100));
-	static final Interval W = new Interval("Whole Tone", Math.pow(H.ratio, 2));
-	static final Interval U1 = new Interval("U1", Math.pow(2, 0.0  / 12));
-	static final Interval m2 = new Interval("m2", Math.pow(2, 1.0  / 12));
-	static final Interval M2 = new Interval("M2", Math.pow(2, 2.0  / 12));
-	static final Interval m3 = new Interval("m3", Math.pow(2, 3.0  / 12));
-	static final Interval M3 = new Interval("M3", Math.pow(2, 4.0  / 12));
-	static final Interval P4 = new Interval("P4", Math.pow(2, 5.0  / 12));
-	static final Interval TT = new Interval("TT", Math.pow(2, 6.0  / 12));
-	static final Interval P5 = new Interval("P5", Math.pow(2, 7.0  / 12));
-	static final Interval m6 = new Interval("m6", Math.pow(2, 8.0  / 12));
-	static final Interval M6 = new Interval("M6", Math.pow(2, 9.0  / 12));
-	static final Interval m7 = new Interval("m7", Math.pow(2, 10.0 / 12));
-	static final Interval M7 = new Interval("M7", Math.pow(2, 11.0 / 12));
-	static final Interval O8 = new Interval("O8", Math.pow(2, 12.0 / 12));
+	static final Interval H  = FromCents("Half  Tone", 100);
+	static final Interval W  = FromCents("Whole Tone", 200);
+	static final Interval U1 = FromCents("U1", 0);
+	static final Interval m2 = FromCents("m2", 100);
+	static final Interval M2 = FromCents("M2", 200);
+	static final Interval m3 = FromCents("m3", 300);
+	static final Interval M3 = FromCents("M3", 400);
+	static final Interval P4 = FromCents("P4", 500);
+	static final Interval TT = FromCents("TT", 600);
+	static final Interval P5 = FromCents("P5", 700);
+	static final Interval m6 = FromCents("m6", 800);
+	static final Interval M6 = FromCents("M6", 900);
+	static final Interval m7 = FromCents("m7", 1000);
+	static final Interval M7 = FromCents("M7", 1100);
+	static final Interval O8 = FromCents("O8", 1200);
 	
 	// List of Main Intervals
 	static final ArrayList<Interval> list = new ArrayList<Interval>(
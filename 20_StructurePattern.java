@@ -0,0 +1,154 @@
+// Description
+/*
+ * A compiled Structure pattern, ex. 1 3b 5# 7 9b. Every token is a degree
+ * of the major scale with its accidentals (X, # & b), which is turned
+ * straight into semitones above the 1: degree 3 is 4 semitones, 3b is 3 &
+ * 9b is 13. The semitones are sorted without duplicates & taken from the
+ * lowest one, so the Intervals are exact multiples of 100 cent.
+ *
+ * The compiled patterns are kept in a concurrent cache & their Intervals
+ * are shared & read only, so building a Structure of a known pattern only
+ * copies an array
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class StructurePattern {
+
+	// Constants
+
+	// semitones above the 1 of the degrees 1 to 7 of the major scale
+	private static final int[] DEGREES = { 0, 2, 4, 5, 7, 9, 11 };
+
+	// Variables
+	private final String pattern;
+	private final int[] semitones;
+	private final Interval[] intervals;
+
+	// Constructors
+	private StructurePattern(String pattern, int[] semitones) {
+
+		this.pattern = pattern;
+		this.semitones = semitones;
+		this.intervals = new Interval[semitones.length];
+		for (int i = 0; i < semitones.length; i++) {
+			intervals[i] = Interval.Shared(100.0 * semitones[i]);
+		}
+	}
+
+	// Returns the compiled pattern from the cache, compiling it on a miss
+	public static StructurePattern valueOf(String pattern) {
+
+		if (pattern == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		MemoCache<String, StructurePattern> cache = patternCache;
+		if (cache == null) return compile(pattern);
+		return cache.get(pattern, StructurePattern::compile);
+	}
+
+	// Compiles a pattern in a single pass, the tokens are the
+	// matches of <degree><accidentals> & the rest is ignored
+	public static StructurePattern compile(String pattern) {
+
+		int[] semitones = new int[8];
+		int count = 0;
+
+		int position = 0;
+		int length = pattern.length();
+		while (position < length) {
+
+			char c = pattern.charAt(position);
+			if (c < '0' || c > '9') {
+				position++;
+				continue;
+			}
+
+			// the degree
+			int degree = 0;
+			for (; position < length && (c = pattern.charAt(position)) >= '0' && c <= '9'; position++) {
+				degree = Math.addExact(Math.multiplyExact(degree, 10), c - '0');
+			}
+			if (degree == 0) {
+				throw new IllegalArgumentException("Degrees of a pattern start from 1");
+			}
+			int semitone = DEGREES[(degree - 1) % 7] + 12 * ((degree - 1) / 7);
+
+			// the accidentals
+			for (; position < length; position++) {
+				c = pattern.charAt(position);
+				if      (c == 'X') semitone += 2;
+				else if (c == '#') semitone += 1;
+				else if (c == 'b') semitone -= 1;
+				else break;
+			}
+
+			if (count == semitones.length) semitones = Arrays.copyOf(semitones, 2 * count);
+			semitones[count++] = semitone;
+		}
+
+		// remove duplicates, order & take them from the lowest
+		Arrays.sort(semitones, 0, count);
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			if (size == 0 || semitones[i] != semitones[size - 1]) semitones[size++] = semitones[i];
+		}
+		int[] result = new int[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = semitones[i] - semitones[0];
+		}
+		return new StructurePattern(pattern, result);
+	}
+
+	// Getters
+	public String getPattern() {
+		return pattern;
+	}
+
+	// Returns the number of Intervals
+	public int size() {
+		return semitones.length;
+	}
+
+	// Returns the semitones of an Interval above the lowest one
+	public int getSemitones(int i) {
+		return semitones[i];
+	}
+
+	// Returns a shared & read only Interval
+	public Interval getInterval(int i) {
+		return intervals[i];
+	}
+
+	// Returns the shared Intervals, the list cannot be changed
+	public List<Interval> getIntervals() {
+		return Collections.unmodifiableList(Arrays.asList(intervals));
+	}
+
+	@Override
+	public String toString() {
+		return pattern + " " + Arrays.toString(semitones);
+	}
+
+	// Methods
+
+	// Returns a new list of the shared Intervals, which the caller owns
+	public ArrayList<Interval> toList() {
+		return new ArrayList<Interval>(Arrays.asList(intervals));
+	}
+
+	// Memo cache of the compiled patterns, null disables it
+	private static volatile MemoCache<String, StructurePattern> patternCache =
+			new MemoCache<String, StructurePattern>(1024);
+
+	static void setPatternCache(MemoCache<String, StructurePattern> cache) {
+		patternCache = cache;
+	}
+
+	static MemoCache<String, StructurePattern> getPatternCache() {
+		return patternCache;
+	}
+}
@@ -0,0 +1,308 @@
+// Description
+/*
+ * An immutable Structure. The sizes of its Intervals in cent & their ratios
+ * are kept in final arrays which never leave the object, so a Structure can
+ * be shared between threads without locks or copies. The methods which
+ * would change a Structure return a new one instead, ex. withInterval(), &
+ * the Chords of a Structure share it instead of copying it.
+ *
+ * The Intervals are always kept in ascending order. The approximations &
+ * the complexity are computed on first use & kept in volatile fields, two
+ * threads may both compute them but they always find the same values
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class ImmutableStructure {
+
+	// Variables
+	private final double[] cents;
+	private final double[] ratios;
+
+	// computed on first use
+	private volatile Rational[] approximations;
+	private volatile double complexity = Double.NaN;
+
+	// Constructors
+
+	// the arrays are owned by the new Structure & are already in order,
+	// the sizes are snapped to the cent keys of their Intervals
+	private ImmutableStructure(double[] cents, double[] ratios) {
+
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = Snap(cents[i]);
+		}
+		this.cents = cents;
+		this.ratios = ratios;
+	}
+
+	// Returns the Structure of the given sizes in cent, in any order
+	public static ImmutableStructure of(double... cents) {
+
+		if (cents == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		if (cents.length == 0) {
+			throw new IllegalArgumentException("A Structure needs at least one Interval");
+		}
+		double[] sorted = new double[cents.length];
+		for (int i = 0; i < cents.length; i++) {
+			sorted[i] = Interval.FromCents(cents[i]).getCents();
+		}
+		Arrays.sort(sorted);
+		return new ImmutableStructure(sorted, Ratios(sorted));
+	}
+
+	// Returns the Structure of a pattern, ex. 1 3b 5 (see class StructurePattern)
+	public static ImmutableStructure valueOf(String pattern) {
+
+		StructurePattern p = StructurePattern.valueOf(pattern);
+		double[] cents = new double[p.size()];
+		double[] ratios = new double[p.size()];
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = p.getInterval(i).getCents();
+			ratios[i] = p.getInterval(i).getRatio();
+		}
+		return new ImmutableStructure(cents, ratios);
+	}
+
+	// Returns an immutable copy of a Structure
+	public static ImmutableStructure valueOf(Structure s) {
+
+		if (s == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		ArrayList<Interval> intervals = s.getIntervals();
+		if (intervals.isEmpty()) {
+			throw new IllegalArgumentException("A Structure needs at least one Interval");
+		}
+		intervals.sort(null);
+
+		double[] cents = new double[intervals.size()];
+		double[] ratios = new double[intervals.size()];
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = intervals.get(i).getCents();
+			ratios[i] = intervals.get(i).getRatio();
+		}
+		return new ImmutableStructure(cents, ratios);
+	}
+
+	// Returns the Structure of some frequencies in ascending order, taken
+	// from the lowest one like the Structure of a Chord of Notes
+	static ImmutableStructure FromFrequencies(double[] frequencies) {
+
+		double[] cents = new double[frequencies.length];
+		double[] ratios = new double[frequencies.length];
+		for (int i = 0; i < cents.length; i++) {
+			ratios[i] = frequencies[i] / frequencies[0];
+			cents[i] = Interval.CentsFromRatio(ratios[i]);
+		}
+		return new ImmutableStructure(cents, ratios);
+	}
+
+	// Getters
+
+	// Returns the number of Intervals
+	public int size() {
+		return cents.length;
+	}
+
+	public double getCents(int i) {
+		return cents[i];
+	}
+
+	public double getRatio(int i) {
+		return ratios[i];
+	}
+
+	// Returns a new Interval, which the caller owns
+	public Interval getInterval(int i) {
+		return Interval.FromCents(cents[i]);
+	}
+
+	// Returns a new list of Intervals, which the caller owns
+	public ArrayList<Interval> getIntervals() {
+
+		ArrayList<Interval> intervals = new ArrayList<Interval>(cents.length);
+		for (int i = 0; i < cents.length; i++) {
+			intervals.add(this.getInterval(i));
+		}
+		return intervals;
+	}
+
+	// Returns a copy of the sizes in cent
+	public double[] toArray() {
+		return cents.clone();
+	}
+
+	@Override
+	// Structures are equal when their Intervals are (see Interval.centKey())
+	public boolean equals(Object that) {
+
+		if (that == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+
+		if (that.getClass() != this.getClass()) return false;
+		return Arrays.equals(this.cents, ((ImmutableStructure) that).cents);
+	}
+
+	@Override
+	public String toString() {
+		return this.getIntervals().toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(cents);
+	}
+
+	// Methods
+
+	// Returns the Structure with an extra Interval
+	public ImmutableStructure withInterval(Interval i) {
+
+		if (i == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		int index = Arrays.binarySearch(cents, i.getCents());
+		if (index < 0) index = -index - 1;
+
+		return new ImmutableStructure(
+				Insert(cents, index, i.getCents()),
+				Insert(ratios, index, i.getRatio()));
+	}
+
+	// Returns the Structure without the Interval at an index
+	public ImmutableStructure withoutInterval(int index) {
+
+		if (index < 0 || index >= cents.length) {
+			throw new IllegalArgumentException("No Interval at index " + index);
+		}
+		if (cents.length == 1) {
+			throw new IllegalArgumentException("A Structure needs at least one Interval");
+		}
+		return new ImmutableStructure(Remove(cents, index), Remove(ratios, index));
+	}
+
+	// Returns the num-th inversion of the Structure
+	public ImmutableStructure inversion(int num) {
+
+		if (num < 0 || num >= cents.length) {
+			throw new IllegalArgumentException("Num of Inversion is not Supported");
+		}
+		if (num == 0 && cents[0] == 0) return this;
+
+		// 12-TET Structures rotate their bit mask
+		PitchClassSet set = PitchClassSet.valueOf(cents, PitchClassSet.TET);
+		if (set != null) {
+
+			int[] classes = set.inversion(num).toArray();
+			double[] result = new double[classes.length];
+			for (int i = 0; i < classes.length; i++) {
+				result[i] = 100.0 * classes[i];
+			}
+			return new ImmutableStructure(result, Ratios(result));
+		}
+
+		// invert the first num intervals up an octave
+		double[] result = cents.clone();
+		for (int i = 0; i < num; i++) {
+			result[i] += Interval.O8.getCents();
+		}
+		Arrays.sort(result);
+
+		// normalize the Intervals with relation to root
+		double root = result[0];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = Interval.FromCents(result[i] - root).getCents();
+		}
+		return new ImmutableStructure(result, Ratios(result));
+	}
+
+	// Returns how many pairs of Intervals are 1 to 6 semitones apart
+	public int[] intervalClasses() {
+
+		PitchClassSet set = PitchClassSet.valueOf(cents, PitchClassSet.TET);
+		return (set != null) ? set.intervalVector() : Structure.CountIntervals(cents, 6);
+	}
+
+	// Returns the interval vector packed in a long, a byte for every class
+	public long packedIntervalVector() {
+		return IntervalVectorIndex.Pack(this.intervalClasses());
+	}
+
+	// Returns the same measure of dissonance as Structure.complexity()
+	public double complexity() {
+
+		double c = complexity;
+		if (Double.isNaN(c)) {
+			c = (cents.length == 1) ? 1.0 : Structure.Complexity(this.approximations());
+			complexity = c;
+		}
+		return c;
+	}
+
+	// Returns the same measure as Structure.normComplexity()
+	public double normComplexity() {
+		return Math.log(this.complexity()) / cents.length;
+	}
+
+	// Returns the rational approximations of the Intervals, the array is
+	// shared so it must not be changed
+	Rational[] approximations() {
+
+		Rational[] a = approximations;
+		if (a == null) {
+			a = new Rational[cents.length];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = this.getInterval(i).approximation();
+			}
+			approximations = a;
+		}
+		return a;
+	}
+
+	// Returns a new mutable Structure with the same Intervals
+	public Structure toStructure() {
+		return new Structure(this.getIntervals());
+	}
+
+	// Conversions
+
+	// Returns a size in cent rounded to its cent key, so sizes which differ
+	// only by rounding errors are equal & 12-TET sizes are exact
+	private static double Snap(double cents) {
+		return Math.round(cents * Interval.KEYS_PER_CENT) / Interval.KEYS_PER_CENT;
+	}
+
+	// Returns the ratios of some sizes in cent
+	private static double[] Ratios(double[] cents) {
+
+		double[] ratios = new double[cents.length];
+		for (int i = 0; i < cents.length; i++) {
+			ratios[i] = Interval.FromCents(cents[i]).getRatio();
+		}
+		return ratios;
+	}
+
+	// Returns a copy of an array with an extra value at an index
+	static double[] Insert(double[] array, int index, double value) {
+
+		double[] result = new double[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		result[index] = value;
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		return result;
+	}
+
+	// Returns a copy of an array without the value at an index
+	static double[] Remove(double[] array, int index) {
+
+		double[] result = new double[array.length - 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index + 1, result, index, result.length - index);
+		return result;
+	}
+}
@@ -0,0 +1,254 @@
+// Description
+/*
+ * An immutable Chord. The frequencies of its notes are kept in a final
+ * array in ascending order, next to the frequency of the root & an
+ * ImmutableStructure, so catalogs of Chords can be shared between threads
+ * without locks or copies. The methods which would change a Chord return a
+ * new one, which shares the unchanged parts: withRoot() keeps the Structure
+ * with its computed complexity & approximations.
+ *
+ * The Notes are created when asked for, from the shared Notes of the
+ * PitchTable when possible
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class ImmutableChord {
+
+	// Variables
+	private final double root;
+	private final ImmutableStructure structure;
+	private final double[] frequencies;
+
+	// Constructors
+
+	// the array is owned by the new Chord & is already in order
+	private ImmutableChord(double root, ImmutableStructure structure, double[] frequencies) {
+		this.root = root;
+		this.structure = structure;
+		this.frequencies = frequencies;
+	}
+
+	// Returns the Chord of a root & a Structure
+	public static ImmutableChord of(double root, ImmutableStructure structure) {
+
+		if (structure == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		if (root <= 0) {
+			throw new IllegalArgumentException("Frequency cannot be less or equal to 0");
+		}
+		double[] frequencies = new double[structure.size()];
+		for (int i = 0; i < frequencies.length; i++) {
+			frequencies[i] = Snap(root * structure.getRatio(i));
+		}
+		return new ImmutableChord(root, structure, frequencies);
+	}
+
+	// Returns the Chord of some frequencies in any order, its root is the lowest one
+	public static ImmutableChord of(double... frequencies) {
+
+		if (frequencies == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		if (frequencies.length == 0) {
+			throw new IllegalArgumentException("A Chord needs at least one Note");
+		}
+		double[] sorted = frequencies.clone();
+		Arrays.sort(sorted);
+		if (!(sorted[0] > 0)) {
+			throw new IllegalArgumentException("Frequency cannot be less or equal to 0");
+		}
+		return new ImmutableChord(sorted[0], ImmutableStructure.FromFrequencies(sorted), sorted);
+	}
+
+	// Returns the Chord of a root name & a pattern, like new Chord(root, pattern)
+	public static ImmutableChord valueOf(String root, String pattern) {
+
+		if (root == null) {
+			throw new NullPointerException("Must supply a non-null Note value");
+		}
+		return of(Note.FrequencyFromName(root), ImmutableStructure.valueOf(pattern));
+	}
+
+	// Returns an immutable copy of a Chord
+	public static ImmutableChord valueOf(Chord c) {
+
+		if (c == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		ArrayList<Note> notes = c.getNotes();
+		double[] frequencies = new double[notes.size()];
+		for (int i = 0; i < frequencies.length; i++) {
+			frequencies[i] = notes.get(i).getFrequency();
+		}
+		Arrays.sort(frequencies);
+		return new ImmutableChord(c.getRoot().getFrequency(),
+				ImmutableStructure.valueOf(c.getStructure()), frequencies);
+	}
+
+	// Getters
+	public double getRootFrequency() {
+		return root;
+	}
+
+	public Note getRoot() {
+		return Note.valueOf(root);
+	}
+
+	public ImmutableStructure getStructure() {
+		return structure;
+	}
+
+	// Returns the number of Notes
+	public int size() {
+		return frequencies.length;
+	}
+
+	public double getFrequency(int i) {
+		return frequencies[i];
+	}
+
+	public Note getNote(int i) {
+		return Note.valueOf(frequencies[i]);
+	}
+
+	// Returns a new list of the Notes in ascending order, which the caller owns
+	public ArrayList<Note> getNotes() {
+
+		ArrayList<Note> notes = new ArrayList<Note>(frequencies.length);
+		for (int i = 0; i < frequencies.length; i++) {
+			notes.add(this.getNote(i));
+		}
+		return notes;
+	}
+
+	// Returns a copy of the frequencies
+	public double[] toArray() {
+		return frequencies.clone();
+	}
+
+	@Override
+	public boolean equals(Object that) {
+
+		if (that == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+
+		if (that.getClass() != this.getClass()) return false;
+		return Arrays.equals(this.frequencies, ((ImmutableChord) that).frequencies);
+	}
+
+	@Override
+	public String toString() {
+		return this.getNotes().toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(frequencies);
+	}
+
+	// Methods
+
+	// Returns the Chord transposed to a new root, sharing the Structure
+	public ImmutableChord withRoot(double root) {
+		return of(root, structure);
+	}
+
+	public ImmutableChord withRoot(Note root) {
+
+		if (root == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+		return of(root.getFrequency(), structure);
+	}
+
+	// Returns the Chord of the same root with another Structure
+	public ImmutableChord withStructure(ImmutableStructure structure) {
+		return of(root, structure);
+	}
+
+	// Returns the Chord with an extra Note
+	public ImmutableChord withNote(double frequency) {
+
+		if (!(frequency > 0)) {
+			throw new IllegalArgumentException("Frequency cannot be less or equal to 0");
+		}
+		int index = Arrays.binarySearch(frequencies, frequency);
+		if (index < 0) index = -index - 1;
+
+		// a Note above the root keeps it & extends the Structure
+		double[] result = ImmutableStructure.Insert(frequencies, index, frequency);
+		if (frequency >= root) {
+			return new ImmutableChord(root, structure.withInterval(new Interval(frequency / root)), result);
+		}
+		return new ImmutableChord(frequency, ImmutableStructure.FromFrequencies(result), result);
+	}
+
+	// Returns the Chord without the Note at an index
+	public ImmutableChord withoutNote(int index) {
+
+		if (index < 0 || index >= frequencies.length) {
+			throw new IllegalArgumentException("No Note at index " + index);
+		}
+		if (frequencies.length == 1) {
+			throw new IllegalArgumentException("A Chord needs at least one Note");
+		}
+		double[] result = ImmutableStructure.Remove(frequencies, index);
+		return new ImmutableChord(result[0], ImmutableStructure.FromFrequencies(result), result);
+	}
+
+	// Returns the nth inversion of the chord
+	public ImmutableChord inversion(int num) {
+
+		if (num < 0 || num >= frequencies.length) {
+			throw new IllegalArgumentException("Num of Inversion is not Supported");
+		}
+		return of(frequencies[num], structure.inversion(num));
+	}
+
+	// Returns the Greatest Common Undertone of the chord notes
+	public Note GCU() {
+
+		if (frequencies.length == 1) return this.getNote(0);
+
+		Interval i = new Interval(Chord.UndertoneRatio(structure.approximations()));
+		return Note.valueOf(frequencies[0] / i.getRatio());
+	}
+
+	// Returns the Least Common Overtone of the chord notes
+	public Note LCO() {
+
+		if (frequencies.length == 1) return this.getNote(0);
+
+		Interval i = new Interval(Chord.OvertoneRatio(structure.approximations()));
+		return Note.valueOf(frequencies[0] * i.getRatio());
+	}
+
+	// Returns a measure of dissonance
+	public double complexity() {
+		return structure.complexity();
+	}
+
+	// Returns a normalized measure of dissonance
+	public double normComplexity() {
+		return structure.normComplexity();
+	}
+
+	// Returns a new mutable Chord with the same root & Structure
+	public Chord toChord() {
+		return new Chord(new Note(root), structure.toStructure());
+	}
+
+	// Conversions
+
+	// Returns the frequency of the MIDI key it falls on, like the
+	// Notes of Note.up(), otherwise the frequency itself
+	private static double Snap(double frequency) {
+
+		Note note = PitchTable.STANDARD.lookup(frequency);
+		return (note != null) ? note.getFrequency() : frequency;
+	}
+}
@@ -0,0 +1,93 @@
+// Description
+/*
+ * Walks all the subsets of a number of elements as bit masks, in Gray code
+ * order: the i-th subset is i ^ (i >>> 1), so every step adds or removes
+ * exactly one element, the one of the lowest bit on in i. Each one of the
+ * 2^n subsets is visited once, starting from the empty one, & only the
+ * current mask is kept, so the subsets are produced lazily.
+ *
+ * Subsets smaller than a minimum size are skipped, & so are the copies
+ * among equal elements: the elements marked as equal to the previous one
+ * are taken only after it, so every distinct subset of values is returned
+ * once. Up to 62 elements fit in the masks
+ */
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+final class GrayCodeSubsets implements PrimitiveIterator.OfLong {
+
+	// Constants
+	static final int MAX_ELEMENTS = 62;
+
+	// marker of a missing mask
+	private static final long NONE = -1;
+
+	// Variables
+	private final int minimumSize;
+	private final long duplicates;
+	private final long end;
+
+	// the step & its subset, before the first step index is -1
+	private long index = -1;
+	private long mask = 0;
+	private long next = NONE;
+
+	// Constructors
+	GrayCodeSubsets(int elements, int minimumSize) {
+		this(elements, minimumSize, 0);
+	}
+
+	// bit k of duplicates is on when element k is equal to element k - 1
+	GrayCodeSubsets(int elements, int minimumSize, long duplicates) {
+
+		if (elements < 0 || elements > MAX_ELEMENTS) {
+			throw new IllegalArgumentException("Only up to " + MAX_ELEMENTS + " elements fit in a mask");
+		}
+		this.minimumSize = minimumSize;
+		this.duplicates = duplicates & ~1L;
+		this.end = 1L << elements;
+	}
+
+	// Methods
+
+	@Override
+	public boolean hasNext() {
+
+		if (next == NONE) next = this.find();
+		return next != NONE;
+	}
+
+	@Override
+	public long nextLong() {
+
+		if (!this.hasNext()) {
+			throw new NoSuchElementException("No more subsets");
+		}
+		long m = next;
+		next = NONE;
+		return m;
+	}
+
+	// Returns the next accepted subset, or NONE if the walk is over
+	private long find() {
+
+		if (index < 0) {
+			index = 0;
+			if (this.accepts(mask)) return mask;
+		}
+		while (index < end - 1) {
+
+			// one element in or out per step
+			index++;
+			mask ^= 1L << Long.numberOfTrailingZeros(index);
+			if (this.accepts(mask)) return mask;
+		}
+		return NONE;
+	}
+
+	// a duplicate is taken only with the element before it
+	private boolean accepts(long m) {
+		return Long.bitCount(m) >= minimumSize && (m & duplicates & ~(m << 1)) == 0;
+	}
+}
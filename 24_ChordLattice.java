@@ -0,0 +1,229 @@
+// Description
+/*
+ * Solves the GCU & the LCO of every subChord of a Chord at once. The ratio
+ * between every pair of notes is approximated only once, & the gcd & lcm
+ * of a subset of notes are found by dynamic programming over the lattice
+ * of subsets: from the lowest note of a subset S with x its highest note,
+ *
+ *     gcd(S) = gcd(gcd(S \ {x}), x)        lcm(S) = lcm(lcm(S \ {x}), x)
+ *
+ * so every subset takes a single fold of prime exponents (see class Monzo)
+ * instead of a fold of all its intervals. A subset with an approximation
+ * beyond the prime limit folds its Rationals instead, like Chord.GCU() &
+ * Chord.LCO(), so the results are exactly the ones of the subChords.
+ *
+ * The votes of solutions() are counted by the packed key & cent error of
+ * the names of the Notes (see class NoteScanner) in a map of primitives,
+ * & a Note is created only once for every distinct solution
+ */
+
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+final class ChordLattice {
+
+	// Constants
+	static final int MAX_NOTES = 24;
+
+	// Variables
+	private final int size;
+	private final double[] frequencies;
+
+	// the approximations of the ratio of note j to note i, i <= j
+	private final Rational[][] rationals;
+	private final Monzo[][] monzos;
+
+	// bit k is on when note k is equal to note k - 1
+	private final long duplicates;
+
+	// the gcd & lcm of every subset from its lowest note,
+	// null beyond the prime limit
+	private final Monzo[] gcd;
+	private final Monzo[] lcm;
+
+	// Constructors
+	ChordLattice(ArrayList<Note> notes) {
+
+		if (notes.size() > MAX_NOTES) {
+			throw new IllegalArgumentException("Only Chords up to " + MAX_NOTES + " notes are supported");
+		}
+		ArrayList<Note> sorted = new ArrayList<Note>(notes);
+		sorted.sort(null);
+
+		this.size = sorted.size();
+		this.frequencies = new double[size];
+		this.rationals = new Rational[size][size];
+		this.monzos = new Monzo[size][size];
+
+		long duplicates = 0;
+		for (int i = 0; i < size; i++) {
+
+			frequencies[i] = sorted.get(i).getFrequency();
+			if (i > 0 && sorted.get(i).equals(sorted.get(i - 1))) duplicates |= 1L << i;
+
+			// the Intervals of a subChord are taken like in Chord.StructureFromNotes()
+			for (int j = i; j < size; j++) {
+				rationals[i][j] = new Interval(sorted.get(i), sorted.get(j)).approximation();
+				monzos[i][j] = Monzo.valueOf(rationals[i][j]);
+			}
+		}
+		this.duplicates = duplicates;
+
+		this.gcd = new Monzo[1 << size];
+		this.lcm = new Monzo[1 << size];
+		this.solve();
+	}
+
+	// Fills the lattice in ascending masks, the subset
+	// without the highest note always comes first
+	private void solve() {
+
+		for (int mask = 1; mask < gcd.length; mask++) {
+
+			int low  = Integer.numberOfTrailingZeros(mask);
+			int high = 31 - Integer.numberOfLeadingZeros(mask);
+			Monzo x = monzos[low][high];
+
+			if (low == high) {
+				gcd[mask] = x;
+				lcm[mask] = x;
+				continue;
+			}
+			int rest = mask ^ (1 << high);
+			if (gcd[rest] == null || x == null) continue;
+
+			gcd[mask] = gcd[rest].gcd(x);
+			lcm[mask] = lcm[rest].lcm(x);
+		}
+	}
+
+	// Getters
+
+	// Returns the number of notes
+	int size() {
+		return size;
+	}
+
+	// Methods
+
+	// Returns the ratio of the Greatest Common Undertone below
+	// the lowest note of the subset of a mask
+	double undertoneRatio(int mask) {
+
+		if (gcd[mask] != null) return gcd[mask].invert().toDouble();
+		return Rational.gcdAll(this.rationals(mask)).invert().toDouble();
+	}
+
+	// Returns the ratio of the Least Common Overtone above
+	// the lowest note of the subset of a mask
+	double overtoneRatio(int mask) {
+
+		if (lcm[mask] != null) return lcm[mask].toDouble();
+		return Rational.lcmAll(this.rationals(mask)).toDouble();
+	}
+
+	// Returns the frequency of the Greatest Common Undertone of a subset
+	double undertone(int mask) {
+
+		if (Integer.bitCount(mask) == 1) return frequencies[Integer.numberOfTrailingZeros(mask)];
+		Interval i = new Interval(this.undertoneRatio(mask));
+		return frequencies[Integer.numberOfTrailingZeros(mask)] / i.getRatio();
+	}
+
+	// Returns the frequency of the Least Common Overtone of a subset
+	double overtone(int mask) {
+
+		if (Integer.bitCount(mask) == 1) return frequencies[Integer.numberOfTrailingZeros(mask)];
+		Interval i = new Interval(this.overtoneRatio(mask));
+		return frequencies[Integer.numberOfTrailingZeros(mask)] * i.getRatio();
+	}
+
+	// Counts the GCU & the LCO of every distinct subChord, weighted by
+	// its number of notes, like Chord.solutions()
+	TreeMap<Note, Integer> solutions() {
+
+		Votes votes = new Votes();
+		GrayCodeSubsets masks = new GrayCodeSubsets(size, 2, duplicates);
+		while (masks.hasNext()) {
+
+			int mask = (int) masks.nextLong();
+			int count = Integer.bitCount(mask);
+
+			long undertone = Note.PitchFromFrequency(this.undertone(mask));
+			long overtone  = Note.PitchFromFrequency(this.overtone(mask));
+
+			// a subChord votes once for a solution
+			votes.add(undertone, count);
+			if (overtone != undertone) votes.add(overtone, count);
+		}
+
+		TreeMap<Note, Integer> solutions = new TreeMap<Note, Integer>();
+		for (int slot = 0; slot < votes.counts.length; slot++) {
+
+			if (votes.counts[slot] == 0) continue;
+			long pitch = votes.pitches[slot];
+			double frequency = NoteScanner.frequency(NoteScanner.key(pitch), NoteScanner.cents(pitch));
+			solutions.put(new Note(Note.NamePitch(pitch), frequency), votes.counts[slot]);
+		}
+		return solutions;
+	}
+
+	// Returns the approximations of a subset from its lowest note
+	private Rational[] rationals(int mask) {
+
+		int low = Integer.numberOfTrailingZeros(mask);
+		Rational[] result = new Rational[Integer.bitCount(mask)];
+		int i = 0;
+		for (int m = mask; m != 0; m &= m - 1) {
+			result[i++] = rationals[low][Integer.numberOfTrailingZeros(m)];
+		}
+		return result;
+	}
+
+	// Open addressing map of packed pitches to their votes,
+	// an empty slot has no votes
+	private static final class Votes {
+
+		private long[] pitches = new long[16];
+		private int[] counts = new int[16];
+		private int used;
+
+		void add(long pitch, int count) {
+
+			int slot = this.find(pitches, counts, pitch);
+			if (counts[slot] == 0) {
+				pitches[slot] = pitch;
+				if (++used * 2 > counts.length) {
+					counts[slot] = count;
+					this.grow();
+					return;
+				}
+			}
+			counts[slot] += count;
+		}
+
+		private int find(long[] pitches, int[] counts, long pitch) {
+
+			int mask = counts.length - 1;
+			int slot = (int) ((pitch * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+			while (counts[slot] != 0 && pitches[slot] != pitch) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private void grow() {
+
+			long[] p = new long[2 * pitches.length];
+			int[] c = new int[2 * counts.length];
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) continue;
+				int slot = this.find(p, c, pitches[i]);
+				p[slot] = pitches[i];
+				c[slot] = counts[i];
+			}
+			pitches = p;
+			counts = c;
+		}
+	}
+}
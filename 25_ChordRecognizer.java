@@ -0,0 +1,211 @@
+// Description
+/*
+ * Names sets of notes, ex. from MIDI or from a NoteTracker, in constant
+ * time. A set of piano keys is reduced to the 12-TET mask of its pitch
+ * classes from the lowest key (the bass), & the mask is the index of a
+ * table of all the named qualities in all their inversions, which gives
+ * the quality, the root above the bass & the inversion.
+ *
+ * When a mask belongs to more than one quality the root positions come
+ * first & then the order of the qualities, so C E G A is C6 & not the
+ * first inversion of Am7. The table is built once & a lookup creates no
+ * objects, the result is packed in a long:
+ *
+ *     root key (32 bits) | quality (24 bits) | inversion (8 bits)
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class ChordRecognizer {
+
+	// Constants
+
+	// the result of a set which is not a known chord
+	static final long UNKNOWN = Long.MIN_VALUE;
+
+	// the qualities in order of preference & their patterns (see class StructurePattern)
+	private static final String[][] QUALITIES = {
+			{ "maj",   "1 3 5"        }, { "m",     "1 3b 5"        },
+			{ "dim",   "1 3b 5b"      }, { "aug",   "1 3 5#"        },
+			{ "sus4",  "1 4 5"        }, { "sus2",  "1 2 5"         },
+			{ "7",     "1 3 5 7b"     }, { "maj7",  "1 3 5 7"       },
+			{ "m7",    "1 3b 5 7b"    }, { "mMaj7", "1 3b 5 7"      },
+			{ "m7b5",  "1 3b 5b 7b"   }, { "dim7",  "1 3b 5b 7bb"   },
+			{ "aug7",  "1 3 5# 7b"    }, { "7sus4", "1 4 5 7b"      },
+			{ "6",     "1 3 5 6"      }, { "m6",    "1 3b 5 6"      },
+			{ "add9",  "1 3 5 9"      }, { "madd9", "1 3b 5 9"      },
+			{ "9",     "1 3 5 7b 9"   }, { "maj9",  "1 3 5 7 9"     },
+			{ "m9",    "1 3b 5 7b 9"  }, { "7b9",   "1 3 5 7b 9b"   },
+			{ "7#9",   "1 3 5 7b 9#"  }, { "11",    "1 3 5 7b 9 11" },
+			{ "m11",   "1 3b 5 7b 9 11" }, { "13",  "1 3 5 7b 9 13" },
+			{ "maj13", "1 3 5 7 9 13" }, { "m13",   "1 3b 5 7b 9 13" },
+			{ "5",     "1 5"          }
+	};
+
+	static final ChordRecognizer STANDARD = new ChordRecognizer(QUALITIES);
+
+	// marker of a mask without a chord
+	private static final int NONE = -1;
+
+	// Variables
+	private final String[] names;
+
+	// quality << 8 | root above the bass << 4 | inversion, for every mask from the bass
+	private final int[] table = new int[1 << PitchClassSet.TET];
+
+	// Constructors
+
+	// every quality is a pair of a name & a pattern, in order of preference
+	public ChordRecognizer(String[][] qualities) {
+
+		if (qualities.length >= 1 << 24) {
+			throw new IllegalArgumentException("Too many qualities");
+		}
+		this.names = new String[qualities.length];
+		Arrays.fill(table, NONE);
+
+		PitchClassSet[] sets = new PitchClassSet[qualities.length];
+		int[][] tones = new int[qualities.length][];
+		for (int q = 0; q < qualities.length; q++) {
+
+			names[q] = qualities[q][0];
+			StructurePattern pattern = StructurePattern.valueOf(qualities[q][1]);
+			tones[q] = new int[pattern.size()];
+			for (int i = 0; i < tones[q].length; i++) {
+				tones[q][i] = pattern.getSemitones(i) % PitchClassSet.TET;
+			}
+			sets[q] = PitchClassSet.of(PitchClassSet.TET, tones[q]);
+		}
+
+		// all the root positions come before the inversions, the i-th inversion
+		// has the i-th tone of the pattern in the bass, ex. the 5th of a maj9
+		// is its inversion 2 & the 9th its inversion 4
+		for (int inversion = 0; inversion < PitchClassSet.TET; inversion++) {
+			for (int q = 0; q < sets.length; q++) {
+
+				if (inversion >= tones[q].length) continue;
+				int bass = tones[q][inversion];
+				int mask = (int) sets[q].transpose(-bass).mask();
+				if (table[mask] == NONE) {
+					table[mask] = q << 8 | (PitchClassSet.TET - bass) % PitchClassSet.TET << 4 | inversion;
+				}
+			}
+		}
+	}
+
+	// Getters
+
+	// Returns the number of qualities
+	public int size() {
+		return names.length;
+	}
+
+	// Returns the entry of a 12-TET mask from the bass (bit 0 on), or -1
+	int lookup(int mask) {
+		return table[mask & ((1 << PitchClassSet.TET) - 1)];
+	}
+
+	// Methods
+
+	// Recognizes the piano keys between the indexes from (inclusive) & to (exclusive)
+	public long recognize(long[] keys, int from, int to) {
+
+		if (keys.length < to || from < 0 || from >= to) return UNKNOWN;
+
+		long bass = keys[from];
+		for (int i = from + 1; i < to; i++) {
+			if (keys[i] < bass) bass = keys[i];
+		}
+		int mask = 0;
+		for (int i = from; i < to; i++) {
+			mask |= 1 << (int) ((keys[i] - bass) % PitchClassSet.TET);
+		}
+		return this.result(bass, mask);
+	}
+
+	public long recognize(long... keys) {
+		return this.recognize(keys, 0, keys.length);
+	}
+
+	// Recognizes frequencies, every one of them taken as its nearest key
+	public long recognize(double[] frequencies, int from, int to) {
+
+		if (frequencies.length < to || from < 0 || from >= to) return UNKNOWN;
+
+		long bass = Long.MAX_VALUE;
+		for (int i = from; i < to; i++) {
+			bass = Math.min(bass, Note.KeyFromFrequency(frequencies[i]));
+		}
+		int mask = 0;
+		for (int i = from; i < to; i++) {
+			mask |= 1 << (int) ((Note.KeyFromFrequency(frequencies[i]) - bass) % PitchClassSet.TET);
+		}
+		return this.result(bass, mask);
+	}
+
+	public long recognize(Chord c) {
+
+		ArrayList<Note> notes = c.getNotes();
+		if (notes.isEmpty()) return UNKNOWN;
+
+		long bass = Long.MAX_VALUE;
+		for (int i = 0; i < notes.size(); i++) {
+			bass = Math.min(bass, Note.KeyFromFrequency(notes.get(i).getFrequency()));
+		}
+		int mask = 0;
+		for (int i = 0; i < notes.size(); i++) {
+			mask |= 1 << (int) ((Note.KeyFromFrequency(notes.get(i).getFrequency()) - bass) % PitchClassSet.TET);
+		}
+		return this.result(bass, mask);
+	}
+
+	// the frequencies are in ascending order, so the bass is the first one
+	public long recognize(ImmutableChord c) {
+
+		long bass = Note.KeyFromFrequency(c.getFrequency(0));
+		int mask = 0;
+		for (int i = 0; i < c.size(); i++) {
+			mask |= 1 << (int) ((Note.KeyFromFrequency(c.getFrequency(i)) - bass) % PitchClassSet.TET);
+		}
+		return this.result(bass, mask);
+	}
+
+	// Returns the packed result of a mask from the bass
+	private long result(long bass, int mask) {
+
+		int entry = table[mask];
+		if (entry == NONE) return UNKNOWN;
+
+		long root = bass + ((entry >>> 4) & 0xF);
+		return root << 32 | (long) (entry >>> 8) << 8 | (entry & 0xF);
+	}
+
+	// Returns the piano key of the root of a result
+	public static long root(long result) {
+		return result >> 32;
+	}
+
+	// Returns the inversion of a result, 0 for the root position
+	public static int inversion(long result) {
+		return (int) (result & 0xFF);
+	}
+
+	// Returns the index of the quality of a result
+	public static int qualityIndex(long result) {
+		return (int) ((result >>> 8) & 0xFFFFFF);
+	}
+
+	// Returns the name of the quality of a result, ex. m7
+	public String quality(long result) {
+		return names[qualityIndex(result)];
+	}
+
+	// Returns the name of a result, ex. C4 m7 or E4 m7 inversion 2
+	public String name(long result) {
+
+		if (result == UNKNOWN) return "Unknown";
+		String name = Note.NameKey(root(result)) + " " + this.quality(result);
+		return (inversion(result) == 0) ? name : name + " inversion " + inversion(result);
+	}
+}
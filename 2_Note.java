@@ -10,9 +10,6 @@
  * which is just a sinusoidal waveform with given frequency without a specifed amplitude
  */
 
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Note implements Comparable<Note> {
 	
@@ -25,6 +22,9 @@ public class Note implements Comparable<Note> {
 	static final Note MIN = new Note("A0", A4.getFrequency() / Math.pow(2, 4)); 						
 	static final Note MAX = new Note("C8", A4.getFrequency() * Math.pow(2, 3) * Interval.m3.getRatio());
 	
+	// marker of a missing cent key
+	private static final long NO_KEY = Long.MIN_VALUE;
+	
 	// Variables 
 	
 	// Scientific pitch notation
@@ -32,6 +32,10 @@ public class Note implements Comparable<Note> {
 	// the accidentals, the octave and the error deviation in cent 
 	private String name;   // name is not unique
 	private Double frequency;
+	// quantized pitch used for hashing, computed on first use
+	private long centKey = NO_KEY;
+	// true for the read only Notes handed out by PitchTable
+	private boolean shared;
 
 	
 	//Constructors
@@ -55,6 +59,15 @@ public class Note implements Comparable<Note> {
 		this(name, FrequencyFromName(name));
 	}
 	
+	// same as above, but the name & the frequency are the ones of a Tuning
+	public Note(Double frequency, Tuning tuning) {
+		this(NameFrequency(frequency, tuning), frequency);
+	}
+	
+	public Note(String name, Tuning tuning) {
+		this(name, FrequencyFromName(name, tuning));
+	}
+	
 	// create analyticaly new Note
 	public Note(String name, Double frequency) {
 				
@@ -65,12 +78,36 @@ public class Note implements Comparable<Note> {
 		this.frequency = frequency;
 	}
 	
+	// Returns a read only Note, which may be shared between all the users
+	static Note Shared(String name, double frequency) {
+		Note note = new Note(name, frequency);
+		note.centKey();
+		note.shared = true;
+		return note;
+	}
+	
+	// Returns the shared Note of the table if the frequency is the one
+	// of a MIDI key, otherwise a new Note
+	public static Note valueOf(double frequency) {
+		Note note = PitchTable.STANDARD.lookup(frequency);
+		return (note != null) ? note : new Note(frequency);
+	}
+	
 	//Setters
 	public void setName(String name) {
+		checkNotShared();
 		this.name = name;
 	}
 	public void setFrequency(Double frequency) {
+		checkNotShared();
 		this.frequency = frequency;
+		this.centKey = NO_KEY;
+	}
+	
+	private void checkNotShared() {
+		if (shared) {
+			throw new UnsupportedOperationException("Shared Notes cannot be modified");
+		}
 	}
 	
 	//Getters
@@ -82,11 +119,9 @@ public class Note implements Comparable<Note> {
 	}
 	
 	@Override
+    // pitches with the same key (see centKey()) are equal
     public int compareTo(Note that) {
-        Double dv = this.frequency - that.frequency;
-        if (dv < 0) return -1;
-        if (dv > 0) return +1;
-        return 0;
+        return Long.compare(this.centKey(), that.centKey());
     }
     
 	@Override
@@ -106,9 +141,20 @@ public class Note implements Comparable<Note> {
 	}
 	
 	@Override
+	// HashCode Consistent with equals() & compareTo(), near identical
+	// frequencies from up() & down() have the same key so they are equal
     public int hashCode() {
-        return this.frequency.hashCode();
+        return Long.hashCode(this.centKey());
     }
+	
+	// Returns the pitch of this Note quantized in millionths of a cent above 1 Hz
+	public long centKey() {
+		
+		if (centKey == NO_KEY) {
+			centKey = Interval.CentKey(this.frequency);
+		}
+		return centKey;
+	}
 
 	//Methods
 	
@@ -116,14 +162,14 @@ public class Note implements Comparable<Note> {
 	public Note up(Interval that) {
 		
 		Double frequency = this.frequency * that.getRatio();
-		return new Note(frequency);
+		return valueOf(frequency);
 	}
 	
 	// Raturns this Note transposed a specified Interval down
 	public Note down(Interval that) {
 		
 		Double frequency = this.frequency / that.getRatio();
-		return new Note(frequency);
+		return valueOf(frequency);
 	}
 	
 	// Returns the nth undertone of this Note
@@ -135,21 +181,30 @@ public class Note implements Comparable<Note> {
 	public Note overtone(int nth) {
 		// 0th overtone is set as the fundamental frequency
 		if (nth == 0) return this;
-		if (nth <  0) return new Note(frequency / -(nth - 1));
-		if (nth >  0) return new Note(frequency *  (nth + 1));
+		if (nth <  0) return valueOf(frequency / -(nth - 1));
+		if (nth >  0) return valueOf(frequency *  (nth + 1));
 		return null;
 	}
 	
 	// Conversions
 	// Retruns the corresponding frequency from a given piano key
 	static Double FrequencyFromKey(long key) {
-		Double frequency = MIN.getFrequency() * Math.pow(Interval.H.getRatio(), key - 1);
-		
-		// in order to round errors from double
-		// also this creates an upper limit of 9.223372036854776E8 Hz
+		if (PitchTable.contains(key)) {
+			return PitchTable.STANDARD.frequency((int) key + PitchTable.PIANO_OFFSET);
+		}
+		return ComputeFrequencyFromKey(MIN.getFrequency(), key);
+	}
+	
+	// Returns the frequency of a piano key above a given A0, without the table
+	static double ComputeFrequencyFromKey(double frequencyOfA0, long key) {
+		return Round(frequencyOfA0 * Math.pow(Interval.H.getRatio(), key - 1));
+	}
+	
+	// in order to round errors from double
+	// also this creates an upper limit of 9.223372036854776E8 Hz
+	static double Round(double frequency) {
 		double precission = Math.pow(10, 10);   
-		frequency = Math.round(frequency * precission) / precission;
-		return frequency;
+		return Math.round(frequency * precission) / precission;
 	}
 
 	// Returns the correspoing piano key from a given frequency
@@ -159,9 +214,13 @@ public class Note implements Comparable<Note> {
 	
 	// Returs the octave range from a given frequency
 	static Integer OctaveFromFrequency(double frequency) {
+		return OctaveFromKey(KeyFromFrequency(frequency));
+	}
+	
+	// Returs the octave range from a given piano key
+	static Integer OctaveFromKey(long key) {
 		int octave = 0;
-		long key = KeyFromFrequency(frequency);
-		if(frequency >= MIN.frequency)
+		if(key >= 1)
 			while((key -= 12) >= -8) octave++;
 		else 
 			while((key += 12) < 4) octave--;
@@ -170,85 +229,91 @@ public class Note implements Comparable<Note> {
 
 	// Assigns Note name to a given frequency
 	static String NameFrequency(double frequency) {
+		return NamePitch(PitchFromFrequency(frequency));
+	} 
+	
+	// Returns the piano key & cent error of the name of a frequency packed 
+	// like NoteScanner.scan() of that name, without building the name
+	static long PitchFromFrequency(double frequency) {
+		
+		// the nearest note name to the frequency
+		long key = KeyFromFrequency(frequency);
+		return NoteScanner.pack((int) key, ErrorCents(frequency / FrequencyFromKey(key)));
+	}
+	
+	// Returns the name of a packed piano key & cent error
+	static String NamePitch(long pitch) {
+		
+		int key = NoteScanner.key(pitch);
+		String name = PitchTable.contains(key) 
+				? PitchTable.STANDARD.name(key + PitchTable.PIANO_OFFSET) 
+				: NameKey(key);
+		
+		return name.concat(NameCents(NoteScanner.cents(pitch)));
+	}
+	
+	// Assigns Note name of a Tuning to a given frequency
+	static String NameFrequency(double frequency, Tuning tuning) {
+		
+		long key = tuning.nearestKey(frequency);
+		return tuning.name(key).concat(NameError(frequency / tuning.frequency(key)));
+	}
+	
+	// Returns the error in cent of a ratio from a key, ex. +14c,
+	// or an empty String if it is in tune
+	static String NameError(double error) {
+		return NameCents(ErrorCents(error));
+	} 
+	
+	// Returns the error in cent of a ratio from a key, or 0 if it is in tune
+	static int ErrorCents(double error) {
+		
+		if (error >= 1 / Interval.limit && error <= Interval.limit) return 0;
+		return (int)Math.round(Math.log(error) / Math.log(Interval.cent));  
+	}
+	
+	// Returns an error in cent as it is written in names, ex. +14c
+	static String NameCents(int error_cent) {
+		
+		if (error_cent == 0) return "";
+		
+		String sign = (error_cent > 0) ? "+" : "-";
+		return sign + Math.abs(error_cent) + "c";
+	}
+	
+	// Assigns Note name without cent error to a given piano key
+	static String NameKey(long key) {
 		
 		String[] notes = {
 				"Ao", "A#o/Bbo", "Bo", "Co", "C#o/Dbo", "Do", 
 				"D#o/Ebo", "Eo", "Fo", "F#o/Gbo", "Go", "G#o/Abo"
 		};
 		
-		// calculate the nearest note name to the frequency
-		int key = (int)(KeyFromFrequency(frequency) - 1) % 12;
-		key = (key > 0) ? key : (12 + key) % 12;
+		int pitch = (int)(key - 1) % 12;
+		pitch = (pitch > 0) ? pitch : (12 + pitch) % 12;
 		
-		String name = notes[key];
-		name = name.replace("o", OctaveFromFrequency(frequency).toString());
-		
-
-		// calculate the error in cent from the given frequency 
-		Double error = frequency / FrequencyFromKey(KeyFromFrequency(frequency));				  
-		int error_cent = (int)Math.round(Math.log(error) / Math.log(Interval.cent));  
-		
-		if (error < 1 / Interval.limit || error > Interval.limit) {
-			
-			String sign = (error_cent > 0) ? "+" : "-";
-			name = name.concat(sign + Math.abs(error_cent) + "c");
-		}
-		return name;
-	} 
+		return notes[pitch].replace("o", OctaveFromKey(key).toString());
+	}
 	
 	// Returns the frequecy from a given Note name
 	static Double FrequencyFromName(String name) {
 		
 		// correct name template: <pitch class><accidental><octave><cent error> 
-		// ex. <A><b><3><-20c> == Ab3-20c
-		
-		@SuppressWarnings("serial")
-		HashMap<Character, Integer> noteToKey = new HashMap<Character, Integer>() {{			
-			put('C', -8);
-			put('D', -6);
-			put('E', -4);
-			put('F', -3);
-			put('G', -1);
-			put('A',  1);
-			put('B',  3);
-		}};
-				
-		
-		// Find pitch class lowest piano key
-		if (name.charAt(0) < 'A' || name.charAt(0) > 'G') {
-			throw new IllegalArgumentException("You must include pitch class note information");
-		}
-		int key = noteToKey.get(name.charAt(0));
-		
-		
-		// Find accidentals
-		if (name.indexOf("X")  != -1) key += 2;
-		if (name.indexOf("#")  != -1) key += 1;
-		if (name.indexOf("b")  != -1) key -= 1;
-		if (name.indexOf("bb") != -1) key -= 1;
-
-		
-		// Find octave range
-		Pattern pattern = Pattern.compile("[-]?[0-9]+");
-		Matcher matcher = pattern.matcher(name);
+		// ex. <A><b><3><-20c> == Ab3-20c (see class NoteScanner)
+		long packed = NoteScanner.scan(name);
+		return NoteScanner.frequency(NoteScanner.key(packed), NoteScanner.cents(packed));
+	}
+	
+	// Returns the frequecy of a Note name inside a Tuning of 12 degrees
+	static Double FrequencyFromName(String name, Tuning tuning) {
 		
-		if (! matcher.find()) {
-			throw new IllegalArgumentException("You must include octave information");
-		}
-		int octave = Integer.parseInt(matcher.group());
-		key += 12 * octave;
-		
-		
-		// Find the error deviation in cents	
-		double frequency = FrequencyFromKey(key);
-		pattern = Pattern.compile("([+-][0-9]+)c");
-		matcher = pattern.matcher(name);
-		if(matcher.find()) {
-			
-			double error = Double.parseDouble(matcher.group(1));
-			if(error > 0) frequency *=  error;
-			if(error < 0) frequency /= -error;
+		if (tuning.size() != 12) {
+			throw new IllegalArgumentException("Note names need a tuning of 12 degrees");
 		}
+		long packed = NoteScanner.scan(name);
+		double frequency = tuning.frequency(NoteScanner.key(packed));
+		int cents = NoteScanner.cents(packed);
+		if (cents != 0) frequency *= Math.pow(Interval.cent, cents);
 		return frequency;
 	}
 
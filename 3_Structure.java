@@ -9,12 +9,15 @@
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Structure {
 
@@ -25,6 +28,9 @@ public class Structure {
 	// ex. 1 3b 5# 7 9b
 	private String pattern;  // pattern is not unique
 	private ArrayList<Interval> intervals;
+	
+	// memoized complexity, null until computed & after every change
+	private volatile Double complexity;
 
 	// Constructors
 	public Structure() {
@@ -33,7 +39,7 @@ public class Structure {
 	
 	// copy constructor
 	public Structure(Structure s) {
-		this.intervals = new ArrayList<Interval>(s.getIntervals());
+		this.intervals = new ArrayList<Interval>(s.intervals);
 		this.pattern = new String(s.pattern);
 	}
 	
@@ -60,16 +66,21 @@ public class Structure {
 	public void setIntervals(ArrayList<Interval> intervals) {
 		this.intervals = new ArrayList<Interval>(intervals);
 		this.pattern = PatternFromIntervals(intervals);
+		this.complexity = null;
 	}
 	
 	public void setPattern(String pattern) {
 		this.pattern = new String(pattern);
 		this.intervals = IntervalsFromPattern(pattern);
+		this.complexity = null;
 	}
 	
 	// Getters
+	
+	// Returns a copy of the list of Intervals, which the caller owns,
+	// the Structure changes only through its own methods
 	public ArrayList<Interval> getIntervals() {
-		return intervals;
+		return new ArrayList<Interval>(intervals);
 	}
 	
 	public String getPattern() {
@@ -95,7 +106,11 @@ public class Structure {
 	
 	@Override
     public int hashCode() {
-        return this.toString().hashCode();
+		int hash = 1;
+		for (int i = 0; i < intervals.size(); i++) {
+			hash = 31 * hash + intervals.get(i).hashCode();
+		}
+        return hash;
     }
 
 	// Methods
@@ -105,50 +120,75 @@ public class Structure {
 		intervals.add(i);
 		intervals.sort(null);
 		pattern = PatternFromIntervals(intervals);
+		complexity = null;
 	}
 	
 	// Returns a list of all possible intervals located inside this Structure
 	public ArrayList<Integer> intervalVector() {
 		
-		@SuppressWarnings("serial")
-		TreeMap<String, Integer> counter = new TreeMap<String, Integer>() {{
-			put("m2", 0);
-			put("M2", 0);
-			put("m3", 0);
-			put("M3", 0);
-			put("P4", 0);
-			put("TT", 0);
-		}};
-		
-		Structure s = this;
-		int size = this.intervals.size();
+		// counters of m2, M2, m3, M3, P4 & TT
+		String[] names = { "m2", "M2", "m3", "M3", "P4", "TT" };
+		int[] counter = this.intervalClasses();
+		
+		ArrayList<Integer> vector = new ArrayList<Integer>(counter.length);
+		for (int index = 0; index < counter.length; index++) {
+			
+			vector.add(counter[index]);
+			System.out.println(names[index] + ": " + counter[index]);
+		}
+		return vector;
+	}
+	
+	// Returns the interval vector without printing it, how many
+	// pairs of Intervals are 1 to 6 semitones apart
+	public int[] intervalClasses() {
+		
+		// 12-TET Structures count the pairs with bit masks
+		PitchClassSet set = PitchClassSet.valueOf(this);
+		return (set != null) ? set.intervalVector() : CountIntervals(this.cents(), 6);
+	}
+	
+	// Returns the interval vector packed in a long, a byte for every class
+	public long packedIntervalVector() {
+		return IntervalVectorIndex.Pack(this.intervalClasses());
+	}
+	
+	// Returns the sizes in cent of the Intervals
+	private double[] cents() {
+		
+		double[] cents = new double[intervals.size()];
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = intervals.get(i).getCents();
+		}
+		return cents;
+	}
+	
+	// Returns how many pairs of Intervals are 1 to classes semitones apart
+	static int[] CountIntervals(double[] sizes, int classes) {
+		
+		int[] counter = new int[classes];
+		double octave  = Interval.O8.getCents();
+		double tritone = Interval.TT.getCents();
+		int size = sizes.length;
 		
 		for (int gap = 1; gap < size; gap++) {
 			for (int i = 0; i < size - gap; i++) {
 				
-				Interval temp = s.getIntervals().get(i).down(s.getIntervals().get(i + gap));
-				if (temp.compareTo(Interval.O8) > 0) {
-					temp = temp.down(Interval.O8);
+				double cents = Math.abs(sizes[i] - sizes[i + gap]);
+				if (cents > octave) {
+					cents = Math.abs(cents - octave);
 				}
-				if (temp.compareTo(Interval.TT) > 0) {
-					temp = Interval.O8.down(temp);
+				if (cents > tritone) {
+					cents = Math.abs(octave - cents);
+				}
+				// only the Intervals close to equal temperament are counted
+				int num = Interval.Semitones(cents);
+				if (num >= 1 && num <= classes && Interval.InTune(cents)) {
+					counter[num - 1]++;
 				}
-				String key = temp.getName();
-				if(counter.containsKey(key)) {
-					Integer n = counter.get(key);
-					counter.replace(key, n + 1);
-				}				
 			}
 		}
-		int index = 0;
-		ArrayList<Integer> vector = new ArrayList<Integer>(counter.size());
-		for(Interval key = Interval.m2; key.compareTo(Interval.TT) <= 0; key = key.up(Interval.H)) {
-			
-			vector.add(counter.get(key.getName()));
-			System.out.println(key + ": " + vector.get(index));
-			index++;
-		}
-		return vector;
+		return counter;
 	}
 	
 	// Retruns a supported inversion of the Structure
@@ -159,21 +199,30 @@ public class Structure {
 			return this;
 		}
 		
+		// 12-TET Structures rotate their bit mask
+		PitchClassSet set = PitchClassSet.valueOf(this);
+		if (set != null) {
+			
+			Structure s = new Structure(this);
+			s.intervals = set.inversion(num).toIntervals();
+			return s;
+		}
+		
 		// invert the first num intervals up an octave
-		Structure s = new Structure(this);
-		for (int i = 0; i < num; i++) {
+		int size = this.intervals.size();
+		double[] cents = new double[size];
+		for (int i = 0; i < size; i++) {
 			
-			Interval temp = s.intervals.get(i).up(Interval.O8);
-			s.intervals.set(i, temp);
+			cents[i] = this.intervals.get(i).getCents();
+			if (i < num) cents[i] += Interval.O8.getCents();
 		}
-		s.intervals.sort(null);
+		Arrays.sort(cents);
 		
 		// normalize the Intervals with relation to root
-		Interval root = s.intervals.get(0);
-		for (int i = 0; i < s.intervals.size(); i++) {
+		Structure s = new Structure(this);
+		for (int i = 0; i < size; i++) {
 			
-			Interval temp = s.intervals.get(i).down(root);
-			s.intervals.set(i, temp);
+			s.intervals.set(i, Interval.FromCents(cents[i] - cents[0]));
 		}
 		
 		return s;
@@ -184,6 +233,17 @@ public class Structure {
 	// find this Structure inside the overtone Series
 	public Double complexity() {
 		
+		Double c = complexity;
+		if (c == null) {
+			c = this.computeComplexity();
+			complexity = c;
+		}
+		return c;
+	}
+	
+	// Computes the above measure without the memo
+	private Double computeComplexity() {
+		
 		if(intervals.size() == 1) {
 			return 1.0;
 		}
@@ -191,18 +251,30 @@ public class Structure {
 		Rational[] rationals = new Rational[intervals.size()];
 		for(int i = 0; i < intervals.size(); i++) {
 			
-			rationals[i] = intervals.get(i).approxRatio();
+			rationals[i] = intervals.get(i).approximation();
 		}
+		return Complexity(rationals);
+	}
+	
+	// Returns the complexity of the approximations of some Intervals
+	static double Complexity(Rational[] rationals) {
 		
-		Rational gcd = Rational.GCD(rationals[0], rationals[1]);
-		Rational lcm = Rational.LCM(rationals[0], rationals[1]);
+		// use the exact prime exponents when every ratio is within the prime limit
+		Monzo[] monzos = Monzos(rationals);
+		if (monzos != null) {
+			return Monzo.lcmAll(monzos).divide(Monzo.gcdAll(monzos)).toDouble();
+		}
 		
-		for(int i = 2; i < rationals.length; i++) {
+		// fold gcd & lcm in place to avoid intermediate Rationals
+		Rational.Accumulator gcd = new Rational.Accumulator(rationals[0]);
+		Rational.Accumulator lcm = new Rational.Accumulator(rationals[0]);
+		
+		for(int i = 1; i < rationals.length; i++) {
 			
-			gcd = Rational.GCD(gcd, rationals[i]);
-			lcm = Rational.LCM(lcm, rationals[i]);
+			gcd.gcdWith(rationals[i]);
+			lcm.lcmWith(rationals[i]);
 		}
-		return lcm.divide(gcd).toDouble();
+		return lcm.divideBy(gcd).toDouble();
 	}
 	
 	// Returns the above measure normalized including 
@@ -213,60 +285,296 @@ public class Structure {
 	
 	// Creates a list of all possible Structures with a given
 	// size, sorted in ascending order based on their complexity
+	// from every set of inversions only the simplest one is kept
 	static ArrayList<Structure> allCombinations(int size) {
 		
 		if (size <= 0) {
 			throw new IllegalArgumentException("Size cannot be less or equal to 0");
 		}
+		if (size == 1) {
+			return new ArrayList<Structure>(Collections.singleton(new Structure("1")));
+		}
+		
+		// every Structure is a 12-TET mask with the root, in the order
+		// of the recursion which adds intervals from U1 to M7
+		int count = Binomial(Interval.list.size() - 1, size - 1);
+		int[] masks = new int[count];
+		double[] complexity = new double[count];
+		
+		// the ratios of the intervals, to find the complexity of a mask
+		Monzo[] monzos = IntervalMonzos();
+		
+		Enumeration root = new Enumeration(1, 1, size, 0, masks, complexity, monzos);
+		int threads = parallelism;
+		if (threads <= 1) {
+			root.enumerate(1, 1, 0);
+		}
+		else {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				pool.invoke(root);
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+		
+		// sort by complexity, the ties stay in the order of the recursion
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (o1, o2) -> (complexity[o1] != complexity[o2]) 
+				? Double.compare(complexity[o1], complexity[o2]) 
+				: Integer.compare(o1, o2));
+		
+		// the place of every mask in the sorted list
+		int[] position = new int[1 << Interval.list.size()];
+		for (int p = 0; p < count; p++) {
+			position[masks[order[p]]] = p;
+		}
 		
-		// the initial seed must be "1" to start properly the recurssion
-		ArrayList<Structure> all = allCombinations(new Structure("1"), size, size);
-		all.sort((o1, o2) -> o1.complexity().compareTo(o2.complexity()));
-		 
 		// in order to keep unique Stractures, we must remove their inversions
-		for(int i = all.size() - 1; i >= 0; i--) {
-			Structure temp = new Structure(all.get(i));
+		boolean[] removed = new boolean[count];
+		for (int p = count - 1; p >= 0; p--) {
 			
-			for (int j = 1; j < temp.getIntervals().size(); j++) {
-				if (all.contains(temp.inversion(j))) {
-					all.remove(i);
+			// every interval above the root is the bass of an inversion
+			int mask = masks[order[p]];
+			for (int m = mask & (mask - 1); m != 0; m &= m - 1) {
+				
+				int bass = Integer.numberOfTrailingZeros(m);
+				if (!InvertsExactly(mask, bass)) continue;
+				
+				if (!removed[position[Inversion(mask, bass)]]) {
+					removed[p] = true;
 					break;
 				}
 			}
 		}
+		
+		ArrayList<Structure> all = new ArrayList<Structure>(count);
+		for (int p = 0; p < count; p++) {
+			if (!removed[p]) all.add(FromMask(masks[order[p]], complexity[order[p]]));
+		}
 		return all;
 	}
 	
+	// Returns the Structures of a given size lazily, in the order of allCombinations
+	// the Structures are found best first, so the simplest ones come without
+	// enumerating the whole space (see class ComplexityIterator)
+	static Iterator<Structure> iterator(int size) {
+		return new ComplexityIterator(size);
+	}
+	
+	static Stream<Structure> stream(int size) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(size), 
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+	
+	// Returns the k simplest Structures of a given size
+	static ArrayList<Structure> top(int size, int k) {
+		
+		if (k < 0) {
+			throw new IllegalArgumentException("K cannot be less than 0");
+		}
+		ArrayList<Structure> top = new ArrayList<Structure>(Math.min(k, 64));
+		Iterator<Structure> iterator = iterator(size);
+		while (top.size() < k && iterator.hasNext()) {
+			top.add(iterator.next());
+		}
+		return top;
+	}
+	
+	// Number of threads which enumerate & score the Structures of allCombinations, 
+	// 1 runs in the calling thread, the results are the same for any number
+	private static volatile int parallelism = 1;
+	
+	static void setParallelism(int threads) {
+		
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Parallelism must be greater than 0");
+		}
+		parallelism = threads;
+	}
+	
+	static int getParallelism() {
+		return parallelism;
+	}
+	
 	// in order to calculate all possible combinations of Structures 
 	// with a specified size we need to use recurssion 
 	// In each step we build the seed adding to it different
 	// intervals until we reach Structures with the desired size
-	private static ArrayList<Structure> allCombinations(Structure seed, int counter, int size) {
-	
-		if (size == 1)
-			return new ArrayList<Structure>(Collections.singleton(new Structure("1")));
-		if(counter == 1) 
-			return new ArrayList<Structure>(0);
+	// 
+	// every seed owns a known range of the arrays (its number of completions),
+	// so the subtrees of large seeds are split between the workers & each
+	// one writes its masks & their complexity in place, in the serial order
+	@SuppressWarnings("serial")
+	private static final class Enumeration extends RecursiveAction {
+		
+		// subtrees with fewer Structures are not split any more
+		static final int THRESHOLD = 16;
+		
+		private final int seed, counter, size, from;
+		private final int[] masks;
+		private final double[] complexity;
+		private final Monzo[] monzos;
+		
+		Enumeration(int seed, int counter, int size, int from, int[] masks, double[] complexity, Monzo[] monzos) {
+			this.seed = seed;
+			this.counter = counter;
+			this.size = size;
+			this.from = from;
+			this.masks = masks;
+			this.complexity = complexity;
+			this.monzos = monzos;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			int last = 31 - Integer.numberOfLeadingZeros(seed);
+			if (counter + 1 == size || completions(last, counter) <= THRESHOLD) {
+				this.enumerate(seed, counter, from);
+				return;
+			}
 			
-		// we start from the U1 and then step by step we add more intervals
-		ArrayList<Structure> all = new ArrayList<Structure>();		
-		int index = Interval.list.indexOf(seed.intervals.get(seed.intervals.size() - 1));
+			// one task for every next interval, at the start of its range
+			ArrayList<Enumeration> tasks = new ArrayList<Enumeration>();
+			int position = from;
+			for (int i = last + 1; i < Interval.list.size(); i++) {
+				
+				tasks.add(new Enumeration(seed | (1 << i), counter + 1, size, position, masks, complexity, monzos));
+				position += completions(i, counter + 1);
+			}
+			invokeAll(tasks);
+		}
 		
-		for(int i = index + 1; i < Interval.list.size(); i++) {
+		// Fills the range of a seed serially, returns the position after it
+		int enumerate(int seed, int counter, int position) {
 			
-			Structure temp = new Structure(seed);
-			temp.addInterval(Interval.list.get(i));
+			// we start from the U1 and then step by step we add more intervals
+			int last = 31 - Integer.numberOfLeadingZeros(seed);
+			for (int i = last + 1; i < Interval.list.size(); i++) {
+				
+				int temp = seed | (1 << i);
+				if (counter + 1 == size) {
+					masks[position] = temp;
+					complexity[position] = Complexity(temp, monzos);
+					position++;
+				}
+				else {
+					position = this.enumerate(temp, counter + 1, position);
+				}
+			}
+			return position;
+		}
+		
+		// Returns the number of Structures that complete a seed of 
+		// counter intervals with the highest one at index last
+		private int completions(int last, int counter) {
+			return Binomial(Interval.list.size() - 1 - last, size - counter);
+		}
+	}
+	
+	// Returns the mask of the inversion of a mask of Interval.list 
+	// on the interval at index bass
+	static int Inversion(int mask, int bass) {
+		
+		int n = Interval.list.size();
+		return (mask >>> bass | mask << (n - bass)) & ((1 << n) - 1);
+	}
+	
+	// Returns true if the inversion of a mask of Interval.list on the interval
+	// at index bass, taken with ratios (up an octave & down to the new root),
+	// lands exactly on the ratios of Interval.list, the rounding of these
+	// products decides which inversions allCombinations removes
+	static boolean InvertsExactly(int mask, int bass) {
+		
+		int n = Interval.list.size();
+		double root = Interval.list.get(bass).getRatio();
+		
+		for (int m = mask; m != 0; m &= m - 1) {
+			
+			int k = Integer.numberOfTrailingZeros(m);
+			double ratio = Interval.list.get(k).getRatio();
+			if (k < bass) ratio *= Interval.O8.getRatio();
+			if (ratio / root != Interval.list.get((k - bass + n) % n).getRatio()) return false;
+		}
+		return true;
+	}
+	
+	// Returns the Structure of a mask of Interval.list with a known complexity
+	static Structure FromMask(int mask, double complexity) {
+		
+		ArrayList<Interval> intervals = new ArrayList<Interval>(Integer.bitCount(mask));
+		for (int k = 0; k < Interval.list.size(); k++) {
+			if ((mask & (1 << k)) != 0) intervals.add(Interval.list.get(k));
+		}
+		Structure s = new Structure(intervals);
+		s.complexity = complexity;
+		return s;
+	}
+	
+	// Returns the prime exponents of the approximations of Interval.list, 
+	// null for the ones outside the prime limit
+	static Monzo[] IntervalMonzos() {
+		
+		Monzo[] monzos = new Monzo[Interval.list.size()];
+		for (int i = 0; i < monzos.length; i++) {
+			monzos[i] = Interval.list.get(i).approxMonzo();
+		}
+		return monzos;
+	}
+	
+	// Returns the complexity of the Structure of a mask of Interval.list,
+	// the same as complexity() of that Structure
+	static double Complexity(int mask, Monzo[] monzos) {
+		
+		ArrayList<Monzo> ratios = new ArrayList<Monzo>(Integer.bitCount(mask));
+		for (int k = 0; k < monzos.length; k++) {
+			if ((mask & (1 << k)) == 0) continue;
 			
-			if (temp.intervals.size() == size) {
-				all.add(temp);
+			// an approximation outside the prime limit takes the slow path
+			if (monzos[k] == null) {
+				ArrayList<Interval> intervals = new ArrayList<Interval>();
+				for (int j = 0; j < monzos.length; j++) {
+					if ((mask & (1 << j)) != 0) intervals.add(Interval.list.get(j));
+				}
+				return new Structure(intervals).complexity();
 			}
-			all.addAll(allCombinations(temp, counter - 1, size));
+			ratios.add(monzos[k]);
 		}
-		return all;
+		Monzo[] m = ratios.toArray(new Monzo[0]);
+		return Monzo.lcmAll(m).divide(Monzo.gcdAll(m)).toDouble();
+	}
+	
+	// Returns the number of ways to choose k out of n
+	static int Binomial(int n, int k) {
+		
+		if (k < 0 || k > n) return 0;
+		long result = 1;
+		for (int i = 1; i <= k; i++) {
+			result = result * (n - k + i) / i;
+		}
+		return (int) result;
 	}
 	
 	// Conversions
 	
+	// Returns the Monzos of the given ratios, or null if any of them 
+	// has a prime factor above Monzo.PRIME_LIMIT
+	static Monzo[] Monzos(Rational[] rationals) {
+		
+		Monzo[] monzos = new Monzo[rationals.length];
+		for (int i = 0; i < rationals.length; i++) {
+			
+			monzos[i] = Monzo.valueOf(rationals[i]);
+			if (monzos[i] == null) return null;
+		}
+		return monzos;
+	}
+	
 	/*
 	 * UNDER CONSTRUCTION
 	 * first I need to include Augmented & Diminished Intervals
@@ -278,58 +586,9 @@ public class Structure {
 	}
 	
 	// converts a given string pattern to a list of Intervals
+	// (see class StructurePattern), the compiled patterns are cached
 	static ArrayList<Interval> IntervalsFromPattern(String pattern) {
-		@SuppressWarnings("serial")
-		HashMap<Integer, String> keyToNote = new HashMap<Integer, String>() {{			
-			put(1, "C");
-			put(2, "D");
-			put(3, "E");
-			put(4, "F");
-			put(5, "G");
-			put(6, "A");
-			put(7, "B");
-			
-		}};		
-		
-		// Find the information inside pattern
-		Matcher matcher = Pattern.compile("\\d+[X#b]*").matcher(pattern);
-		ArrayList<String> allMatches = new ArrayList<String>();
-		while (matcher.find()) {
-			allMatches.add(matcher.group());
-		}
-	
-		// Translate information to Notes
-		ArrayList<Note> notes = new ArrayList<Note>();
-		for (String s : allMatches) {
-			int octave = 1;
-			int noteNumber = 1;
-			
-			// retrive note number from string
-			matcher = Pattern.compile("\\d+").matcher(s);
-			if (matcher.find()) {
-				noteNumber = Integer.parseInt(matcher.group());
-			}
-			// find the note octave range
-			while (noteNumber > 7) {
-				noteNumber -= 7;
-				octave++;
-			}
-			// name the note 
-			s = s.replaceAll("\\d+", keyToNote.get(noteNumber)).concat(octave + "");
-			notes.add(new Note(s));
-		}
-		
-		// Translate Notes to Intervals
-		ArrayList<Interval> intervals = new ArrayList<Interval>();
-		HashSet<Note> set = new HashSet<>(notes);
-		notes.clear();
-		notes.addAll(set);  //remove duplicates
-		notes.sort(null);   //order the notes
-	
-		for (Note n : notes) {
-			intervals.add(new Interval(notes.get(0), n));
-		}
-		return intervals;
+		return StructurePattern.valueOf(pattern).toList();
 	}
 	
 	
@@ -9,7 +9,12 @@
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Chord {
 
@@ -46,11 +51,12 @@ public class Chord {
 		}
 		this.root = new Note(root);
 		this.structure = new Structure(pattern);
-		this.notes = new ArrayList<Note>(structure.getIntervals().size());
+		ArrayList<Interval> intervals = structure.getIntervals();
+		this.notes = new ArrayList<Note>(intervals.size());
 		
-		for (int i = 0; i < structure.getIntervals().size(); i++) {
+		for (int i = 0; i < intervals.size(); i++) {
 
-			notes.add(this.root.up(structure.getIntervals().get(i)));
+			notes.add(this.root.up(intervals.get(i)));
 		}
 		this.notes.sort(null);
 	}
@@ -64,10 +70,11 @@ public class Chord {
 		this.root = root;
 		this.structure = structure;
 
-		this.notes = new ArrayList<Note>(structure.getIntervals().size());
-		for (int i = 0; i < structure.getIntervals().size(); i++) {
+		ArrayList<Interval> intervals = structure.getIntervals();
+		this.notes = new ArrayList<Note>(intervals.size());
+		for (int i = 0; i < intervals.size(); i++) {
 
-			notes.add(root.up(structure.getIntervals().get(i)));
+			notes.add(root.up(intervals.get(i)));
 		}
 		this.notes.sort(null);
 	}
@@ -77,20 +84,22 @@ public class Chord {
 	public void setRoot(Note root) {
 
 		this.root = root;
-		this.notes = new ArrayList<Note>(structure.getIntervals().size());
-		for (int i = 0; i < structure.getIntervals().size(); i++) {
+		ArrayList<Interval> intervals = structure.getIntervals();
+		this.notes = new ArrayList<Note>(intervals.size());
+		for (int i = 0; i < intervals.size(); i++) {
 
-			notes.add(root.up(structure.getIntervals().get(i)));
+			notes.add(root.up(intervals.get(i)));
 		}
 	}
 
 	public void setStructure(String pattern) {
 
 		this.structure = new Structure(pattern);
-		this.notes = new ArrayList<Note>(structure.getIntervals().size());
-		for (int i = 0; i < structure.getIntervals().size(); i++) {
+		ArrayList<Interval> intervals = structure.getIntervals();
+		this.notes = new ArrayList<Note>(intervals.size());
+		for (int i = 0; i < intervals.size(); i++) {
 
-			notes.add(root.up(structure.getIntervals().get(i)));
+			notes.add(root.up(intervals.get(i)));
 		}
 		this.notes.sort(null);
 	}
@@ -127,7 +136,11 @@ public class Chord {
 	
 	@Override
     public int hashCode() {
-        return this.toString().hashCode();
+		int hash = 1;
+		for (int i = 0; i < notes.size(); i++) {
+			hash = 31 * hash + notes.get(i).hashCode();
+		}
+        return hash;
     }
 
 	
@@ -139,81 +152,54 @@ public class Chord {
 	 */
 	// Calculates the GCU & LCO of every subChord of 
 	// this Chord, in an attemp to find possible solutions
-	// to the Chord
+	// to the Chord, the subChords are solved together (see class ChordLattice)
 	public TreeMap<Note, Integer> solutions() {
+		return new ChordLattice(notes).solutions();
+	}
+	
+	// Calculates all possible Chord combinations
+	// using the notes that are part of this Chord
+	public ArrayList<Chord> subChords() {
 		
-		TreeMap<Note, Integer> solutions = new TreeMap<Note, Integer>();
-		HashMap<String, Integer> map = new HashMap<String, Integer>();
-		ArrayList<Chord> subChords = this.subChords();
+		ArrayList<Chord> list = new ArrayList<Chord>();
+		Iterator<Chord> iterator = this.subChordIterator();
+		while (iterator.hasNext()) {
+			list.add(iterator.next());
+		}
+		return list;
+	}
+	
+	// Returns the subChords of at least two notes one at a time, every
+	// subset of the notes by bit mask in Gray code order (see class
+	// GrayCodeSubsets), so equal notes give each subChord only once
+	public Iterator<Chord> subChordIterator() {
 		
-		// we find the solutions
-		for (int i = 0; i < subChords.size(); i++) {
-			
-			String sol1 = subChords.get(i).GCU().getName();	
-			String sol2 = subChords.get(i).LCO().getName();
-			int counter1 = subChords.get(i).getNotes().size();
-			int counter2 = counter1;
+		ArrayList<Note> sorted = new ArrayList<Note>(notes);
+		sorted.sort(null);
+		
+		long duplicates = 0;
+		for (int k = 1; k < sorted.size(); k++) {
+			if (sorted.get(k).equals(sorted.get(k - 1))) duplicates |= 1L << k;
+		}
+		GrayCodeSubsets masks = new GrayCodeSubsets(sorted.size(), 2, duplicates);
+		
+		return new Iterator<Chord>() {
 			
-			if(map.containsKey(sol1)) {
-				counter1 += map.get(sol1);
+			@Override
+			public boolean hasNext() {
+				return masks.hasNext();
 			}
-			if(map.containsKey(sol2)) {
-				counter2 += map.get(sol2);
+			
+			@Override
+			public Chord next() {
+				return SubChord(sorted, masks.nextLong());
 			}
-			map.put(sol1, counter1);
-			map.put(sol2, counter2);
-		}
-		
-		for (String s : map.keySet()) {
-			solutions.put(new Note(s), map.get(s));
-		}
-		return solutions;
+		};
 	}
 	
-	// Calculates all possible Chord combinations
-	// using the notes that are part of this Chord
-	public ArrayList<Chord> subChords() {
-		
-		// set to store all the subsequences 
-	    ArrayList<Chord> list = new ArrayList<Chord>();
-	    
-	    // iterate over the entire chord notes
-	    for (int i = 0; i < notes.size(); i++) {
-	    	
-	    	// iterate from the end of chord notes 
-            // to generate subchords
-            for (int j = notes.size(); j > i + 1; j--) {
-            	
-            	ArrayList<Note> sub_notes = new ArrayList<Note>();
-            	sub_notes.addAll(notes.subList(i, j));
-            	Chord sub_chord = new Chord(sub_notes);
-            
-            	// check is subchord already exists
-            	if(!list.contains(sub_chord)) 
-            		list.add(sub_chord);
-            	
-            	// drop kth character in the substring 
-                // and if its not in the set then recur 
-                for (int k = 1; k < sub_chord.notes.size() - 1; k++) { 
-                    Chord temp = new Chord(sub_chord); 
-                     
-                    // drop character from the string 
-                    temp.getNotes().remove(k);
-                    temp = new Chord(temp.getNotes());                    
-                    if(!list.contains(temp)) 
-                		list.add(temp);
-                    
-                   // recursion 
-                   ArrayList<Chord> temp_list = temp.subChords(); 
-                   for(Chord c : temp_list) {
-                	   if(!list.contains(c))
-                		   list.add(c);
-                	   
-                   }
-                } 
-            }
-	    }
-	    return list;
+	public Stream<Chord> subChordStream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this.subChordIterator(), 
+				Spliterator.DISTINCT | Spliterator.NONNULL), false);
 	}
 	
 	// Calculates and returns the Greatest Common Undertone of the chord notes
@@ -223,17 +209,13 @@ public class Chord {
 			return notes.get(0);
 		}
 		
-		Rational[] intervals = new Rational[structure.getIntervals().size()];
+		ArrayList<Interval> list = structure.getIntervals();
+		Rational[] intervals = new Rational[list.size()];
 		for(int i = 0; i < intervals.length; i++) {
-			intervals[i] = structure.getIntervals().get(i).approxRatio();
-		}
-				
-		Rational gcd = Rational.GCD(intervals[0], intervals[1]);
-		for(int i = 2; i < intervals.length; i++) {
-			
-			gcd = Rational.GCD(gcd, intervals[i]);
+			intervals[i] = list.get(i).approximation();
 		}
-		Interval i = new Interval(gcd.invert().toDouble());
+		
+		Interval i = new Interval(UndertoneRatio(intervals));
 		return new Note(notes.get(0).down(i));
 	}
 	
@@ -244,18 +226,14 @@ public class Chord {
 			return notes.get(0);
 		}
 		
-		Rational[] intervals = new Rational[structure.getIntervals().size()];
+		ArrayList<Interval> list = structure.getIntervals();
+		Rational[] intervals = new Rational[list.size()];
 		for(int i = 0; i < intervals.length; i++) {
-			intervals[i] = structure.getIntervals().get(i).approxRatio();
+			intervals[i] = list.get(i).approximation();
 			//System.out.println(intervals[i]);
 		}
-				
-		Rational lcm = Rational.LCM(intervals[0], intervals[1]);
-		for(int i = 2; i < intervals.length; i++) {
-			
-			lcm = Rational.LCM(lcm, intervals[i]);
-		}
-		Interval i = new Interval(lcm.toDouble());
+		
+		Interval i = new Interval(OvertoneRatio(intervals));
 		return new Note(notes.get(0).up(i));
 	}
 	
@@ -284,6 +262,36 @@ public class Chord {
 	
 	// Conversions
 	
+	// Returns the Chord of the notes of a bit mask
+	private static Chord SubChord(ArrayList<Note> notes, long mask) {
+		
+		ArrayList<Note> sub = new ArrayList<Note>(Long.bitCount(mask));
+		for (long m = mask; m != 0; m &= m - 1) {
+			sub.add(notes.get(Long.numberOfTrailingZeros(m)));
+		}
+		return new Chord(sub);
+	}
+	
+	// Returns the ratio of the Greatest Common Undertone below the lowest note
+	static double UndertoneRatio(Rational[] intervals) {
+		
+		// exact prime exponents when possible, otherwise fold the Rationals
+		Monzo[] monzos = Structure.Monzos(intervals);
+		return (monzos != null) 
+				? Monzo.gcdAll(monzos).invert().toDouble() 
+				: Rational.gcdAll(intervals).invert().toDouble();
+	}
+	
+	// Returns the ratio of the Least Common Overtone above the lowest note
+	static double OvertoneRatio(Rational[] intervals) {
+		
+		// exact prime exponents when possible, otherwise fold the Rationals
+		Monzo[] monzos = Structure.Monzos(intervals);
+		return (monzos != null) 
+				? Monzo.lcmAll(monzos).toDouble() 
+				: Rational.lcmAll(intervals).toDouble();
+	}
+	
 	// Returns the Note pattern 
 	private Structure StructureFromNotes(ArrayList<Note> notes) {
 		Structure s = new Structure();
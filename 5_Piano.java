@@ -1,12 +1,14 @@
-import java.util.ArrayList;
+import java.util.Iterator;
 
 public class Piano {
 
 	public static void main(String[] args) {
 						
-		ArrayList<Structure> list = Structure.allCombinations(3);
-		for (Structure s : list) 
+		Iterator<Structure> structures = Structure.iterator(3);
+		while (structures.hasNext()) {
+			Structure s = structures.next();
 			System.out.println(s + " " + s.complexity());
+		}
 		
 	}
 }
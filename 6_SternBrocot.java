@@ -0,0 +1,200 @@
+// Description
+/*
+ * Resumable binary search in the Stern-Brocot tree. Every call to advance()
+ * continues the descent from where the previous one stopped and moves to the
+ * next best rational approximation of the value, the same sequence that
+ * Rational.approxWithSBT(x, 1), approxWithSBT(x, 2), ... produces.
+ *
+ * Instead of visiting the mediants one by one, a run of consecutive moves
+ * in the same direction (L, L, L, ... or R, R, R, ...) is handled at once by
+ * searching for its length, so the cost depends on the number of runs
+ * (the continued fraction terms) and not on the depth inside the tree
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public final class SternBrocot implements Iterator<Rational> {
+
+	// Variables
+
+	// the value we approximate
+	private final double x;
+
+	// the left & right bounds of the current subtree
+	private long leftNum, leftDen;
+	private long rightNum, rightDen;
+
+	// the best approximation found so far
+	private long bestNum, bestDen;
+	private double bestError;
+
+	// set when the next mediants no longer fit in longs
+	private boolean exhausted;
+
+	// Constructors
+	public SternBrocot(double x) {
+
+		if (Double.isNaN(x) || Double.isInfinite(x)) {
+			throw new IllegalArgumentException("Value must be a finite number");
+		}
+
+		//in order to round errors from double
+		double digits = Math.pow(10, 10);
+		x = Math.round(x * digits) / digits;
+		this.x = x;
+
+		long num = (long)Math.floor(x);
+		leftNum  = num;
+		leftDen  = 1;
+		rightNum = num + 1;
+		rightDen = 1;
+		bestNum  = num;
+		bestDen  = 1;
+		bestError = Math.abs((double) bestNum / bestDen - x);
+	}
+
+	// Getters
+
+	// Returns the (rounded) value we approximate
+	public double getValue() {
+		return x;
+	}
+
+	public long getNumerator() {
+		return bestNum;
+	}
+
+	public long getDenominator() {
+		return bestDen;
+	}
+
+	// Returns the absolute error of the best approximation
+	public double getError() {
+		return bestError;
+	}
+
+	// Returns the best approximation found so far, a shared &
+	// read only Rational for small values (see Rational.valueOf())
+	public Rational getBest() {
+		return Rational.valueOf(bestNum, bestDen);
+	}
+
+	// Methods
+
+	@Override
+	public boolean hasNext() {
+		return !exhausted && bestError != 0;
+	}
+
+	@Override
+	public Rational next() {
+
+		if (!this.advance()) {
+			throw new NoSuchElementException("No better approximation exists");
+		}
+		return this.getBest();
+	}
+
+	// Moves to the next best approximation, returns false if there is none
+	public boolean advance() {
+
+		while (this.hasNext()) {
+
+			// the first mediant decides the direction of the run
+			if (leftNum > Long.MAX_VALUE - rightNum || leftDen > Long.MAX_VALUE - rightDen) {
+				exhausted = true;
+				break;
+			}
+			boolean goLeft = x < value(leftNum + rightNum, leftDen + rightDen);
+
+			// largest step that still fits in longs
+			long max = goLeft
+					? Math.min(limit(leftNum, rightNum), limit(leftDen, rightDen))
+					: Math.min(limit(rightNum, leftNum), limit(rightDen, leftDen));
+
+			// find the length of the run with exponential & binary search
+			long low = 1;
+			long high = 1;
+			while (high < max) {
+				high = (high > max / 2) ? max : 2 * high;
+				if (!sameDirection(goLeft, high)) break;
+				low = high;
+			}
+			if (low != high) {
+				while (high - low > 1) {
+					long mid = low + (high - low) / 2;
+					if (sameDirection(goLeft, mid)) low = mid;
+					else high = mid;
+				}
+			}
+			long run = low;
+
+			// inside a run the mediants close in on x from one side, so
+			// the error only decreases & we look for the first better one
+			if (error(goLeft, run) < bestError) {
+
+				low = 0;
+				high = run;
+				while (high - low > 1) {
+					long mid = low + (high - low) / 2;
+					if (error(goLeft, mid) < bestError) high = mid;
+					else low = mid;
+				}
+				bestNum = numerator(goLeft, high);
+				bestDen = denominator(goLeft, high);
+				bestError = error(goLeft, high);
+				this.move(goLeft, high);
+				return true;
+			}
+			this.move(goLeft, run);
+		}
+		return false;
+	}
+
+	// Returns the kth mediant numerator of the current run
+	private long numerator(boolean goLeft, long k) {
+		return goLeft ? k * leftNum + rightNum : leftNum + k * rightNum;
+	}
+
+	// Returns the kth mediant denominator of the current run
+	private long denominator(boolean goLeft, long k) {
+		return goLeft ? k * leftDen + rightDen : leftDen + k * rightDen;
+	}
+
+	// Returns true if the kth mediant still lies on the same side of x
+	private boolean sameDirection(boolean goLeft, long k) {
+		boolean left = x < value(numerator(goLeft, k), denominator(goLeft, k));
+		return left == goLeft;
+	}
+
+	// Returns the error of the kth mediant of the current run
+	private double error(boolean goLeft, long k) {
+		return Math.abs(value(numerator(goLeft, k), denominator(goLeft, k)) - x);
+	}
+
+	// Moves k steps inside the current run
+	private void move(boolean goLeft, long k) {
+
+		long n = numerator(goLeft, k);
+		long d = denominator(goLeft, k);
+		if (goLeft) {
+			rightNum = n;
+			rightDen = d;
+		}
+		else {
+			leftNum = n;
+			leftDen = d;
+		}
+	}
+
+	// Returns the largest k such that k * a + b fits in a long
+	private static long limit(long a, long b) {
+		if (a == 0) return Long.MAX_VALUE;
+		return (Long.MAX_VALUE - b) / a;
+	}
+
+	private static double value(long n, long d) {
+		return (double) n / d;
+	}
+}
@@ -0,0 +1,253 @@
+// Description
+/*
+ * A precomputed & sorted table of all the reduced fractions p/q with q up to
+ * a maximum denominator inside a range of values (a Farey sequence shifted
+ * to that range). The fractions are kept in primitive arrays, and the table
+ * answers "which is the simplest fraction within some cent of x" with two
+ * binary searches plus a range minimum query on the denominators, so every
+ * lookup is O(log n) and creates no objects on the way.
+ *
+ * Inside any contiguous part of a Farey sequence the fraction with the
+ * smallest denominator is unique, so the answer is always well defined
+ */
+
+public final class FareyIndex {
+
+	// Variables
+	private final long maxDenominator;
+	private final double min;
+	private final double max;
+
+	// the table sorted by value
+	private final long[] numerators;
+	private final long[] denominators;
+	private final double[] values;
+
+	// segment tree holding the index of the smallest denominator of every node
+	private final int[] tree;
+	private final int leaves;
+
+	// Constructors
+
+	// the default range covers the ratios of the intervals up to two octaves
+	public FareyIndex(long maxDenominator) {
+		this(maxDenominator, 1, 4);
+	}
+
+	public FareyIndex(long maxDenominator, double min, double max) {
+
+		if (maxDenominator <= 0) {
+			throw new IllegalArgumentException("Max denominator must be greater than 0");
+		}
+		if (min < 0 || max < min) {
+			throw new IllegalArgumentException("Invalid range of values");
+		}
+		this.maxDenominator = maxDenominator;
+		this.min = min;
+		this.max = max;
+
+		// count first, so we allocate the arrays only once
+		long count = generate(null, null, null);
+		if (count > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many fractions, use a smaller max denominator or range");
+		}
+
+		int size = (int) count;
+		numerators   = new long[size];
+		denominators = new long[size];
+		values       = new double[size];
+		generate(numerators, denominators, values);
+
+		// build the range minimum tree bottom up
+		int n = 1;
+		while (n < Math.max(size, 1)) n <<= 1;
+		leaves = n;
+		tree = new int[2 * n];
+		for (int i = 0; i < n; i++) {
+			tree[n + i] = (i < size) ? i : -1;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			tree[i] = simplest(tree[2 * i], tree[2 * i + 1]);
+		}
+	}
+
+	// Walks the Farey sequence of every unit interval inside [min, max]
+	// and stores the fractions when arrays are given, returns their count
+	private long generate(long[] numerators, long[] denominators, double[] values) {
+
+		long count = 0;
+		long first = (long) Math.floor(min);
+		long last  = (long) Math.floor(max);
+
+		for (long k = first; k <= last; k++) {
+
+			// next term of the Farey sequence: a/b, c/d -> c/d, (t*c - a)/(t*d - b)
+			long a = 0, b = 1, c = 1, d = maxDenominator;
+
+			// 0/1 belongs to this unit, 1/1 to the next one
+			count = this.store(k, a, b, count, numerators, denominators, values);
+			while (c < d) {
+				count = this.store(k, c, d, count, numerators, denominators, values);
+
+				long t = (maxDenominator + b) / d;
+				long e = t * c - a;
+				long f = t * d - b;
+				a = c;
+				b = d;
+				c = e;
+				d = f;
+			}
+		}
+		return count;
+	}
+
+	// Stores k + p/q if it lies inside the range
+	private long store(long k, long p, long q, long count, long[] numerators, long[] denominators, double[] values) {
+
+		long n = k * q + p;
+		double value = (double) n / q;
+		if (value < min || value > max) return count;
+
+		if (numerators != null) {
+			numerators[(int) count]   = n;
+			denominators[(int) count] = q;
+			values[(int) count]       = value;
+		}
+		return count + 1;
+	}
+
+	// Returns the index with the simplest fraction from two indexes
+	private int simplest(int i, int j) {
+
+		if (i < 0) return j;
+		if (j < 0) return i;
+		if (denominators[i] != denominators[j]) {
+			return (denominators[i] < denominators[j]) ? i : j;
+		}
+		return (numerators[i] <= numerators[j]) ? i : j;
+	}
+
+	// Getters
+	public long getMaxDenominator() {
+		return maxDenominator;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	// Returns the number of fractions in the table
+	public int size() {
+		return values.length;
+	}
+
+	public long getNumerator(int index) {
+		return numerators[index];
+	}
+
+	public long getDenominator(int index) {
+		return denominators[index];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	// Returns a shared & read only Rational for small values (see Rational.valueOf())
+	public Rational getRational(int index) {
+		return Rational.valueOf(numerators[index], denominators[index]);
+	}
+
+	// Methods
+
+	// Returns the index of the simplest fraction within the
+	// specified error (in cent) from x, or -1 if there is none
+	public int indexOf(double x, double errorInCent) {
+
+		return this.indexWithin(x, bound(errorInCent));
+	}
+
+	// Returns the index of the simplest fraction in [x / bound, x * bound]
+	private int indexWithin(double x, double bound) {
+
+		if (x <= 0 || values.length == 0) return -1;
+
+		int from = lowerBound(x / bound);
+		int to   = lowerBound(Math.nextUp(x * bound)) - 1;
+		if (from > to) return -1;
+
+		return this.query(from, to);
+	}
+
+	// Returns the simplest fraction within the specified
+	// error (in cent) from x, or null if there is none
+	public Rational approximate(double x, double errorInCent) {
+
+		int index = this.indexOf(x, errorInCent);
+		return (index < 0) ? null : this.getRational(index);
+	}
+
+	// Finds the simplest fraction for every value in one call & writes
+	// their indexes inside the table (or -1) to result, returns the misses
+	public int approximate(double[] x, double errorInCent, int[] result) {
+
+		if (result.length < x.length) {
+			throw new IllegalArgumentException("Result array is too small");
+		}
+
+		int misses = 0;
+		double bound = bound(errorInCent);
+		for (int i = 0; i < x.length; i++) {
+			result[i] = this.indexWithin(x[i], bound);
+			if (result[i] < 0) misses++;
+		}
+		return misses;
+	}
+
+	// Returns the simplest fractions for every value,
+	// null where there is none inside the table
+	public Rational[] approximate(double[] x, double errorInCent) {
+
+		int[] indexes = new int[x.length];
+		this.approximate(x, errorInCent, indexes);
+
+		Rational[] result = new Rational[x.length];
+		for (int i = 0; i < x.length; i++) {
+			if (indexes[i] >= 0) result[i] = this.getRational(indexes[i]);
+		}
+		return result;
+	}
+
+	// Returns the ratio that corresponds to the error in cent
+	private static double bound(double errorInCent) {
+		return Math.pow(2, Math.abs(errorInCent) / 1200);
+	}
+
+	// Returns the first index with value greater or equal to v
+	private int lowerBound(double v) {
+
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < v) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	// Returns the index of the simplest fraction in [from, to]
+	private int query(int from, int to) {
+
+		int best = -1;
+		for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) == 1) best = simplest(best, tree[l++]);
+			if ((r & 1) == 1) best = simplest(best, tree[--r]);
+		}
+		return best;
+	}
+}
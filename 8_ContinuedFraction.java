@@ -0,0 +1,199 @@
+// Description
+/*
+ * Continued fraction expansion of a double, computed directly on primitives.
+ * Every call to advance() takes one more coefficient a_k and updates the
+ * convergent with the exact recurrences
+ *
+ *     p_k = a_k * p_(k-1) + p_(k-2)
+ *     q_k = a_k * q_(k-1) + q_(k-2)
+ *
+ * so the convergents are produced lazily, one at a time. The error of the
+ * convergent p_k/q_k is bounded by 1 / (q_k * (q_k + q_(k-1))).
+ *
+ * A double carries about 16 significant digits, so the expansion stops when
+ * the fractional part vanishes (is closer than EPSILON to an integer), the convergent reproduces the value exactly,
+ * or the next convergent does not fit in longs, so a value beyond the range
+ * of longs has no convergent at all. For more digits use the
+ * BigDecimal expansion Rational.CFE(BigDecimal, int)
+ */
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public final class ContinuedFraction implements Iterator<Rational> {
+
+	// fractional parts below this are considered the end of the expansion
+	static final double EPSILON = 1e-8;
+
+	// Variables
+	private final double x;
+
+	// the part of the value still to be expanded
+	private double remainder;
+
+	// the last coefficient & the last two convergents
+	private long coefficient;
+	private long numerator, denominator;
+	private long previousNumerator, previousDenominator;
+
+	private int terms;
+	private boolean finished;
+
+	// Constructors
+	public ContinuedFraction(double x) {
+
+		if (Double.isNaN(x) || Double.isInfinite(x)) {
+			throw new IllegalArgumentException("Value must be a finite number");
+		}
+		this.x = x;
+		this.remainder = x;
+
+		// p_(-1) / q_(-1) = 1 / 0 & p_(-2) / q_(-2) = 0 / 1
+		numerator = 1;
+		denominator = 0;
+		previousNumerator = 0;
+		previousDenominator = 1;
+	}
+
+	// Getters
+	public double getValue() {
+		return x;
+	}
+
+	// Returns the number of coefficients taken so far
+	public int getTerms() {
+		return terms;
+	}
+
+	public long getCoefficient() {
+		return coefficient;
+	}
+
+	public long getNumerator() {
+		return numerator;
+	}
+
+	public long getDenominator() {
+		return denominator;
+	}
+
+	// Returns the current convergent, a shared & read only
+	// Rational for small values (see Rational.valueOf())
+	public Rational getConvergent() {
+
+		if (terms == 0) {
+			throw new IllegalStateException("No convergent has been computed yet");
+		}
+		return Rational.valueOf(numerator, denominator);
+	}
+
+	// Returns the actual error of the current convergent
+	public double getError() {
+		return Math.abs(x - (double) numerator / denominator);
+	}
+
+	// Returns an upper bound of the error of the current convergent
+	public double getErrorBound() {
+		return 1.0 / ((double) denominator * (denominator + previousDenominator));
+	}
+
+	// Methods
+
+	@Override
+	public boolean hasNext() {
+		return !finished;
+	}
+
+	@Override
+	public Rational next() {
+
+		if (!this.advance()) {
+			throw new NoSuchElementException("The expansion has finished");
+		}
+		return this.getConvergent();
+	}
+
+	// Takes the next coefficient, returns false if the expansion has finished
+	public boolean advance() {
+
+		if (finished) return false;
+
+		// only the first coefficient can be too large for a long
+		if (!(Math.abs(remainder) < 0x1p63)) {
+			finished = true;
+			return false;
+		}
+
+		long a = (long) Math.floor(remainder);
+		double fractional = remainder - a;
+
+		// rounding errors can leave the remainder just below an integer
+		if (1 - fractional <= EPSILON) {
+			a++;
+			fractional = 0;
+		}
+
+		long p, q;
+		try {
+			p = Math.addExact(Math.multiplyExact(a, numerator),   previousNumerator);
+			q = Math.addExact(Math.multiplyExact(a, denominator), previousDenominator);
+		}
+		catch (ArithmeticException e) {
+			finished = true;
+			return false;
+		}
+
+		coefficient = a;
+		previousNumerator = numerator;
+		previousDenominator = denominator;
+		numerator = p;
+		denominator = q;
+		terms++;
+
+		if (fractional <= EPSILON || (double) p / q == x) {
+			finished = true;
+		}
+		else {
+			remainder = 1 / fractional;
+		}
+		return true;
+	}
+
+	// Returns at most the first terms coefficients of the expansion of x
+	static long[] coefficients(double x, int terms) {
+
+		if (terms <= 0) {
+			throw new IllegalArgumentException("Invalid terms input");
+		}
+
+		long[] coefficients = new long[terms];
+		ContinuedFraction cf = new ContinuedFraction(x);
+		int size = 0;
+		while (size < terms && cf.advance()) {
+			coefficients[size++] = cf.coefficient;
+		}
+		return (size == terms) ? coefficients : Arrays.copyOf(coefficients, size);
+	}
+
+	// Writes at most the first terms convergents of x inside
+	// the given arrays, returns how many of them were written
+	static int convergents(double x, int terms, long[] numerators, long[] denominators) {
+
+		if (terms <= 0) {
+			throw new IllegalArgumentException("Invalid terms input");
+		}
+		if (numerators.length < terms || denominators.length < terms) {
+			throw new IllegalArgumentException("Arrays are too small");
+		}
+
+		ContinuedFraction cf = new ContinuedFraction(x);
+		int size = 0;
+		while (size < terms && cf.advance()) {
+			numerators[size]   = cf.numerator;
+			denominators[size] = cf.denominator;
+			size++;
+		}
+		return size;
+	}
+}
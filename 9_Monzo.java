@@ -0,0 +1,301 @@
+// Description
+/*
+ * In just intonation every ratio is a product of prime powers, for example
+ * 45/32 = 2^-5 * 3^2 * 5^1. A monzo keeps only the exponents of the primes
+ * 2, 3, 5, 7, 11, 13 ... in a small int array, [-5 2 1> for 45/32.
+ *
+ * With this representation multiplication & division are additions &
+ * subtractions of the exponents, while gcd & lcm are their element-wise
+ * minimum & maximum, so they are exact & never need Euclid's algorithm
+ */
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public final class Monzo {
+
+	// Constants
+
+	// ratios with prime factors above this limit cannot be represented
+	static final int PRIME_LIMIT = 311;
+	static final int[] PRIMES = Primes(PRIME_LIMIT);
+
+	static final Monzo ONE = new Monzo(new int[0]);
+
+	// marker of a ratio beyond the prime limit
+	private static final Monzo NONE = new Monzo(new int[0]);
+
+	// Variables
+
+	// the exponent of every prime, without trailing zeros
+	private final int[] exponents;
+
+	// Constructors
+
+	// the array is owned by the new Monzo
+	private Monzo(int[] exponents) {
+		this.exponents = exponents;
+	}
+
+	// create a Monzo from the exponents of 2, 3, 5, 7 ...
+	public static Monzo of(int... exponents) {
+
+		if (exponents.length > PRIMES.length) {
+			throw new IllegalArgumentException("Only the first " + PRIMES.length + " primes are supported");
+		}
+		return trim(Arrays.copyOf(exponents, exponents.length));
+	}
+
+	// Returns the Monzo of n / d, or null if they have
+	// a prime factor above the prime limit
+	public static Monzo valueOf(long n, long d) {
+
+		if (n <= 0 || d <= 0) {
+			throw new IllegalArgumentException("Only positive ratios can be represented");
+		}
+
+		int[] exponents = new int[PRIMES.length];
+		if (!factor(n, +1, exponents) || !factor(d, -1, exponents)) {
+			return null;
+		}
+		return trim(exponents);
+	}
+
+	// Returns the Monzo of a Rational, or null if it has
+	// a prime factor above the prime limit
+	public static Monzo valueOf(Rational r) {
+
+		if (r.isBig()) return null;
+		if (!r.isShared()) return valueOf(r.getNumerator(), r.getDenominator());
+
+		// the shared Rationals never change, so each one is factored only once
+		Monzo m = r.monzo;
+		if (m == null) {
+			m = valueOf(r.getNumerator(), r.getDenominator());
+			if (m == null) m = NONE;
+			r.monzo = m;
+		}
+		return (m == NONE) ? null : m;
+	}
+
+	// Adds the exponents of the prime factors of n times sign,
+	// returns false if something remains above the prime limit
+	private static boolean factor(long n, int sign, int[] exponents) {
+
+		for (int i = 0; i < PRIMES.length && n > 1; i++) {
+			int p = PRIMES[i];
+			while (n % p == 0) {
+				n /= p;
+				exponents[i] += sign;
+			}
+		}
+		return n == 1;
+	}
+
+	// Returns a Monzo on exponents without the trailing zeros
+	private static Monzo trim(int[] exponents) {
+
+		int size = exponents.length;
+		while (size > 0 && exponents[size - 1] == 0) size--;
+		if (size == 0) return ONE;
+		return new Monzo((size == exponents.length) ? exponents : Arrays.copyOf(exponents, size));
+	}
+
+	// Getters
+
+	// Returns the number of primes up to the highest one used
+	public int size() {
+		return exponents.length;
+	}
+
+	// Returns the exponent of the ith prime
+	public int getExponent(int i) {
+		return (i < exponents.length) ? exponents[i] : 0;
+	}
+
+	// Returns the highest prime with a non zero exponent
+	public int getPrimeLimit() {
+		return (exponents.length == 0) ? 1 : PRIMES[exponents.length - 1];
+	}
+
+	@Override
+	public boolean equals(Object that) {
+
+		if (that == null) {
+			throw new NullPointerException("Must supply a non-null Object value");
+		}
+
+		if (that.getClass() != this.getClass()) return false;
+		return Arrays.equals(this.exponents, ((Monzo) that).exponents);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(exponents);
+	}
+
+	@Override
+	// Returns the ket notation of this, ex. [-5 2 1>
+	public String toString() {
+
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < exponents.length; i++) {
+			if (i > 0) builder.append(' ');
+			builder.append(exponents[i]);
+		}
+		return builder.append('>').toString();
+	}
+
+	// Methods
+
+	// Returns this * that
+	public Monzo multiply(Monzo that) {
+
+		int[] result = Arrays.copyOf(this.exponents, Math.max(this.exponents.length, that.exponents.length));
+		for (int i = 0; i < that.exponents.length; i++) {
+			result[i] += that.exponents[i];
+		}
+		return trim(result);
+	}
+
+	// Returns this / that
+	public Monzo divide(Monzo that) {
+
+		int[] result = Arrays.copyOf(this.exponents, Math.max(this.exponents.length, that.exponents.length));
+		for (int i = 0; i < that.exponents.length; i++) {
+			result[i] -= that.exponents[i];
+		}
+		return trim(result);
+	}
+
+	// Returns 1 / this
+	public Monzo invert() {
+
+		int[] result = new int[exponents.length];
+		for (int i = 0; i < exponents.length; i++) {
+			result[i] = -exponents[i];
+		}
+		return trim(result);
+	}
+
+	// Returns the greatest common divisor of the Monzos
+	public static Monzo gcdAll(Monzo... monzos) {
+		return fold(monzos, true);
+	}
+
+	// Returns the least common multiple of the Monzos
+	public static Monzo lcmAll(Monzo... monzos) {
+		return fold(monzos, false);
+	}
+
+	// Returns gcd(this, that)
+	public Monzo gcd(Monzo that) {
+		return fold(new Monzo[] { this, that }, true);
+	}
+
+	// Returns lcm(this, that)
+	public Monzo lcm(Monzo that) {
+		return fold(new Monzo[] { this, that }, false);
+	}
+
+	// Takes the element-wise minimum or maximum of the exponents
+	private static Monzo fold(Monzo[] monzos, boolean minimum) {
+
+		if (monzos == null || monzos.length == 0) {
+			throw new IllegalArgumentException("Must supply at least one Monzo");
+		}
+
+		int size = 0;
+		for (Monzo m : monzos) size = Math.max(size, m.exponents.length);
+
+		int[] result = Arrays.copyOf(monzos[0].exponents, size);
+		for (int k = 1; k < monzos.length; k++) {
+			int[] e = monzos[k].exponents;
+			for (int i = 0; i < size; i++) {
+				int x = (i < e.length) ? e[i] : 0;
+				result[i] = minimum ? Math.min(result[i], x) : Math.max(result[i], x);
+			}
+		}
+		return trim(result);
+	}
+
+	// Conversions
+
+	// Returns the value of this as a Rational, a shared &
+	// read only one for small values (see Rational.valueOf())
+	public Rational toRational() {
+
+		try {
+			return Rational.valueOf(part(+1), part(-1));
+		}
+		catch (ArithmeticException e) {
+			return new Rational(bigPart(+1), bigPart(-1));
+		}
+	}
+
+	// Returns the value of this as a double
+	public double toDouble() {
+
+		try {
+			return (double) part(+1) / part(-1);
+		}
+		catch (ArithmeticException e) {
+			double value = 1;
+			for (int i = 0; i < exponents.length; i++) {
+				value *= Math.pow(PRIMES[i], exponents[i]);
+			}
+			return value;
+		}
+	}
+
+	// Returns the size of this ratio in cents
+	public double cents() {
+
+		double cents = 0;
+		for (int i = 0; i < exponents.length; i++) {
+			cents += exponents[i] * 1200 * Math.log(PRIMES[i]) / Math.log(2);
+		}
+		return cents;
+	}
+
+	// Returns the product of the prime powers with positive (sign = +1)
+	// or negative (sign = -1) exponents, throws ArithmeticException on overflow
+	private long part(int sign) {
+
+		long product = 1;
+		for (int i = 0; i < exponents.length; i++) {
+			for (int e = sign * exponents[i]; e > 0; e--) {
+				product = Math.multiplyExact(product, PRIMES[i]);
+			}
+		}
+		return product;
+	}
+
+	private BigInteger bigPart(int sign) {
+
+		BigInteger product = BigInteger.ONE;
+		for (int i = 0; i < exponents.length; i++) {
+			int e = sign * exponents[i];
+			if (e > 0) product = product.multiply(BigInteger.valueOf(PRIMES[i]).pow(e));
+		}
+		return product;
+	}
+
+	// Returns all the primes up to limit using the sieve of Eratosthenes
+	static int[] Primes(int limit) {
+
+		boolean[] composite = new boolean[limit + 1];
+		int count = 0;
+		for (int i = 2; i <= limit; i++) {
+			if (composite[i]) continue;
+			count++;
+			for (long j = (long) i * i; j <= limit; j += i) composite[(int) j] = true;
+		}
+
+		int[] primes = new int[count];
+		for (int i = 2, k = 0; i <= limit; i++) {
+			if (!composite[i]) primes[k++] = i;
+		}
+		return primes;
+	}
+}